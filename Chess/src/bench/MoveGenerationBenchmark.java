@@ -0,0 +1,177 @@
+package bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.BitBoard;
+import model.Board;
+import model.Location;
+import model.Move;
+import model.MoveGenerator;
+import model.MoveHandler;
+import model.Perft;
+
+/**
+ * Throughput benchmarks for move generation, run over a fixed suite of positions. Each benchmark is warmed up before it is measured so that the JIT has compiled the code being
+ * timed. Before anything is timed the perft counts of every position are checked against the expected values, so a change that breaks move generation fails here instead of
+ * showing up as a speedup.
+ * 
+ * Usage: {@code MoveGenerationBenchmark [perftDepth]}. Exits with status 1 if a perft count is wrong.
+ */
+public class MoveGenerationBenchmark{
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASURE_ITERATIONS = 5;
+	private static final long ITERATION_NANOS = 500000000L;
+	private static final int DEFAULT_DEPTH = 4;
+	
+	/**
+	 * the position suite. Each position is the list of moves, in move file format, played from the starting position.
+	 */
+	private static final String[][] SUITE = {
+		{},
+		{"e2 e4", "e7 e5", "g1 f3", "b8 c6", "f1 c4", "g8 f6"},
+		{"e2 e4", "c7 c5", "g1 f3", "d7 d6", "d2 d4", "c5 d4", "f3 d4", "g8 f6", "b1 c3", "a7 a6"},
+		{"e2 e4", "a7 a6", "e4 e5", "d7 d5"},
+	};
+	private static final String[] NAMES = {"start", "two knights", "najdorf", "en passant"};
+	
+	/**
+	 * perft counts of every suite position at depths 1 through 4. These follow the rules MoveGenerator implements, which has no castling or promotion yet, so only the
+	 * starting position matches the published numbers.
+	 */
+	private static final long[][] EXPECTED = {
+		{20, 400, 8902, 197281},
+		{32, 901, 28955, 862064},
+		{43, 1256, 53806, 1587261},
+		{31, 781, 24166, 630536},
+	};
+	
+	public static void main(String[] args){
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+		
+		LinkedHashMap<String, MoveHandler> positions = new LinkedHashMap<String, MoveHandler>();
+		for(int i = 0; i < SUITE.length; i++){
+			positions.put(NAMES[i], setUp(SUITE[i]));
+		}
+		
+		if(!verify(positions)){
+			System.exit(1);
+		}
+		
+		for(Map.Entry<String, MoveHandler> e : positions.entrySet()){
+			final MoveHandler handler = e.getValue();
+			final BitBoard position = handler.copyPosition();
+			final int[] moves = new int[MoveGenerator.MAX_MOVES];
+			final int perftDepth = depth;
+			String name = e.getKey();
+			
+			long nodes = Perft.perft(handler, depth);
+			report(name + " perft(" + depth + ")", measure(new Runnable(){
+				public void run(){
+					Perft.perft(position, perftDepth);
+				}
+			}), nodes, "nodes");
+			
+			report(name + " MoveHandler.forceUpdate", measure(new Runnable(){
+				public void run(){
+					handler.forceUpdate();
+				}
+			}), 1, "ops");
+			
+			int count = MoveGenerator.generate(position, moves);
+			report(name + " MoveGenerator.generate", measure(new Runnable(){
+				public void run(){
+					MoveGenerator.generate(position, moves);
+				}
+			}), count, "moves");
+			
+			//executing and reverting every legal move exercises the incremental attack table that replaced constructThreatMap
+			final Move[] objects = new Move[count];
+			for(int i = 0; i < count; i++){
+				objects[i] = handler.getMove(moves[i]);
+			}
+			report(name + " Move.execute/revert", measure(new Runnable(){
+				public void run(){
+					for(Move m : objects){
+						m.execute();
+						m.revert();
+					}
+				}
+			}), count, "moves");
+		}
+	}
+	
+	/**
+	 * plays a list of moves from the starting position.
+	 * @param moves the moves to play, in move file format
+	 * @return the MoveHandler in the resulting position
+	 */
+	private static MoveHandler setUp(String[] moves){
+		MoveHandler handler = new MoveHandler(new Board(true));
+		for(String move : moves){
+			String[] squares = move.split(" ");
+			handler.makeMove(Location.valueOf(squares[0]), Location.valueOf(squares[1]));
+		}
+		handler.forceUpdate();
+		return handler;
+	}
+	
+	/**
+	 * checks the perft counts of every suite position.
+	 * @return whether or not every count matched
+	 */
+	private static boolean verify(LinkedHashMap<String, MoveHandler> positions){
+		boolean ok = true;
+		int i = 0;
+		for(Map.Entry<String, MoveHandler> e : positions.entrySet()){
+			for(int depth = 1; depth <= EXPECTED[i].length; depth++){
+				long nodes = Perft.perft(e.getValue(), depth);
+				if(nodes != EXPECTED[i][depth - 1]){
+					System.err.println(e.getKey() + " perft(" + depth + ") = " + nodes + ", expected " + EXPECTED[i][depth - 1]);
+					ok = false;
+				}
+			}
+			i++;
+		}
+		return ok;
+	}
+	
+	/**
+	 * runs a benchmark body repeatedly for the warmup iterations, then for the measured iterations.
+	 * @param body the code to time
+	 * @return the mean number of times the body ran per second over the measured iterations
+	 */
+	private static double measure(Runnable body){
+		for(int i = 0; i < WARMUP_ITERATIONS; i++){
+			iterate(body);
+		}
+		double total = 0;
+		for(int i = 0; i < MEASURE_ITERATIONS; i++){
+			total += iterate(body);
+		}
+		return total / MEASURE_ITERATIONS;
+	}
+	
+	/**
+	 * runs a benchmark body for one iteration.
+	 * @return the number of times the body ran per second
+	 */
+	private static double iterate(Runnable body){
+		long start = System.nanoTime();
+		long elapsed;
+		long runs = 0;
+		do{
+			body.run();
+			runs++;
+			elapsed = System.nanoTime() - start;
+		}while(elapsed < ITERATION_NANOS);
+		return runs / (elapsed / 1e9);
+	}
+	
+	/**
+	 * prints one benchmark result.
+	 */
+	private static void report(String name, double opsPerSecond, long unitsPerOp, String units){
+		System.out.println(String.format("%-45s %14.1f ops/s %16.0f %s/s", name, opsPerSecond, opsPerSecond * unitsPerOp, units));
+	}
+}
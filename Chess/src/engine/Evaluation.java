@@ -0,0 +1,119 @@
+package engine;
+
+import model.BitBoard;
+import model.Location;
+import model.Player;
+import model.Type;
+
+/**
+ * A static evaluation of a position: material plus a bonus or penalty for where each piece stands. Scores are in centipawns.
+ * 
+ * The piece-square tables are written from white's point of view with the eighth rank first, the way a board is usually drawn; black pieces read them mirrored.
+ */
+public final class Evaluation{
+	private static final int[] VALUES = new int[BitBoard.TYPES];
+	private static final int[][] TABLES = new int[BitBoard.TYPES][];
+	
+	static{
+		VALUES[Type.pawn.ordinal()] = 100;
+		VALUES[Type.knight.ordinal()] = 320;
+		VALUES[Type.bishop.ordinal()] = 330;
+		VALUES[Type.rook.ordinal()] = 500;
+		VALUES[Type.queen.ordinal()] = 900;
+		VALUES[Type.king.ordinal()] = 20000;
+		
+		TABLES[Type.pawn.ordinal()] = new int[]{
+			  0,  0,  0,  0,  0,  0,  0,  0,
+			 50, 50, 50, 50, 50, 50, 50, 50,
+			 10, 10, 20, 30, 30, 20, 10, 10,
+			  5,  5, 10, 25, 25, 10,  5,  5,
+			  0,  0,  0, 20, 20,  0,  0,  0,
+			  5, -5,-10,  0,  0,-10, -5,  5,
+			  5, 10, 10,-20,-20, 10, 10,  5,
+			  0,  0,  0,  0,  0,  0,  0,  0};
+		TABLES[Type.knight.ordinal()] = new int[]{
+			-50,-40,-30,-30,-30,-30,-40,-50,
+			-40,-20,  0,  0,  0,  0,-20,-40,
+			-30,  0, 10, 15, 15, 10,  0,-30,
+			-30,  5, 15, 20, 20, 15,  5,-30,
+			-30,  0, 15, 20, 20, 15,  0,-30,
+			-30,  5, 10, 15, 15, 10,  5,-30,
+			-40,-20,  0,  5,  5,  0,-20,-40,
+			-50,-40,-30,-30,-30,-30,-40,-50};
+		TABLES[Type.bishop.ordinal()] = new int[]{
+			-20,-10,-10,-10,-10,-10,-10,-20,
+			-10,  0,  0,  0,  0,  0,  0,-10,
+			-10,  0,  5, 10, 10,  5,  0,-10,
+			-10,  5,  5, 10, 10,  5,  5,-10,
+			-10,  0, 10, 10, 10, 10,  0,-10,
+			-10, 10, 10, 10, 10, 10, 10,-10,
+			-10,  5,  0,  0,  0,  0,  5,-10,
+			-20,-10,-10,-10,-10,-10,-10,-20};
+		TABLES[Type.rook.ordinal()] = new int[]{
+			  0,  0,  0,  0,  0,  0,  0,  0,
+			  5, 10, 10, 10, 10, 10, 10,  5,
+			 -5,  0,  0,  0,  0,  0,  0, -5,
+			 -5,  0,  0,  0,  0,  0,  0, -5,
+			 -5,  0,  0,  0,  0,  0,  0, -5,
+			 -5,  0,  0,  0,  0,  0,  0, -5,
+			 -5,  0,  0,  0,  0,  0,  0, -5,
+			  0,  0,  0,  5,  5,  0,  0,  0};
+		TABLES[Type.queen.ordinal()] = new int[]{
+			-20,-10,-10, -5, -5,-10,-10,-20,
+			-10,  0,  0,  0,  0,  0,  0,-10,
+			-10,  0,  5,  5,  5,  5,  0,-10,
+			 -5,  0,  5,  5,  5,  5,  0, -5,
+			  0,  0,  5,  5,  5,  5,  0, -5,
+			-10,  5,  5,  5,  5,  5,  0,-10,
+			-10,  0,  5,  0,  0,  0,  0,-10,
+			-20,-10,-10, -5, -5,-10,-10,-20};
+		TABLES[Type.king.ordinal()] = new int[]{
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-20,-30,-30,-40,-40,-30,-30,-20,
+			-10,-20,-20,-20,-20,-20,-20,-10,
+			 20, 20,  0,  0,  0,  0, 20, 20,
+			 20, 30, 10,  0,  0, 10, 30, 20};
+	}
+	
+	private Evaluation(){}
+	
+	/**
+	 * @param type a type of piece
+	 * @return the material value of the type in centipawns
+	 */
+	public static int value(Type type){
+		return VALUES[type.ordinal()];
+	}
+	
+	/**
+	 * @param index a piece index as used by BitBoard
+	 * @return the material value of the piece in centipawns
+	 */
+	static int valueOf(int index){
+		return VALUES[index % BitBoard.TYPES];
+	}
+	
+	/**
+	 * evaluates a position.
+	 * @param position the position to evaluate
+	 * @return the score of the position for the player whose turn it is. Positive is good for that player.
+	 */
+	public static int evaluate(BitBoard position){
+		int score = 0;
+		for(int index = 0; index < BitBoard.PIECES; index++){
+			int type = index % BitBoard.TYPES;
+			boolean white = BitBoard.playerOf(index) == Player.white;
+			for(long pieces = position.getPieces(index); pieces != 0; pieces &= pieces - 1){
+				int square = Long.numberOfTrailingZeros(pieces);
+				//the tables list the eighth rank first, so white squares are flipped vertically and black squares are used as they are
+				int entry = (white) ? square ^ (Location.SIZE * (Location.SIZE - 1)) : square;
+				int value = VALUES[type] + TABLES[type][entry];
+				score += (white) ? value : -value;
+			}
+		}
+		return (position.getTurn() == Player.white) ? score : -score;
+	}
+}
@@ -0,0 +1,357 @@
+package engine;
+
+import java.util.Arrays;
+
+import model.BitBoard;
+import model.Move;
+import model.MoveGenerator;
+import model.MoveHandler;
+import model.PackedMove;
+import model.Type;
+
+/**
+ * A negamax alpha-beta search with iterative deepening. Each iteration searches one ply deeper than the last until the depth, time or node budget runs out; the result of the
+ * last completed iteration is returned. Captures are searched to the end at the leaves (quiescence search) so that the static evaluation is never taken in the middle of an
+ * exchange.
+ * 
+ * Moves are tried in this order: the best move stored in the transposition table or the move from the previous iteration's principal variation, captures by most valuable victim and least valuable attacker, the two killer
+ * moves of the ply, then the remaining quiet moves by their history score.
+ * 
+ * Results are kept in a TranspositionTable, which may be shared between several Searches running at once. A position found in the table with a deep enough result is not searched
+ * again, and its best move is tried first otherwise.
+ * 
+ * The search works on its own copy of the position using packed moves, so searching never touches a MoveHandler's Board. A Search reuses its buffers between searches and must
+ * only be used by one thread at a time; {@code stop()} is the exception and may be called from any thread.
+ */
+public class Search{
+	public static final int MAX_PLY = 64;
+	public static final int MATE = 30000;
+	private static final int INFINITY = 32000;
+	private static final int CHECK_INTERVAL = 1023;
+	
+	private static final int DEFAULT_TABLE_MEGABYTES = 16;
+	
+	private static final int PV_SCORE = 2000000000;
+	private static final int CAPTURE_SCORE = 1000000000;
+	private static final int FIRST_KILLER_SCORE = 900000000;
+	private static final int SECOND_KILLER_SCORE = 800000000;
+	
+	private final TranspositionTable table;
+	private BitBoard position;
+	private long deadline;
+	private long maxNodes;
+	private long nodes;
+	private volatile boolean stopped;
+	
+	private int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+	private int[][] scores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+	private int[][] killers = new int[MAX_PLY][2];
+	private int[][] history = new int[BitBoard.PIECES][BitBoard.SQUARES];
+	private int[][] pv = new int[MAX_PLY][MAX_PLY];
+	private int[] pvLength = new int[MAX_PLY];
+	private int[] previousPv = new int[MAX_PLY];
+	private long[] keys = new long[MAX_PLY];
+	
+	/**
+	 * creates a search with a transposition table of its own.
+	 */
+	public Search(){
+		this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES));
+	}
+	
+	/**
+	 * creates a search that uses the given transposition table.
+	 * @param table the table to use. It may be shared with other Searches, including ones running on other threads.
+	 */
+	public Search(TranspositionTable table){
+		this.table = table;
+	}
+	
+	/**
+	 * searches the current position of a MoveHandler and returns the best move as a Move object, ready to be passed to {@code MoveHandler.makeMove(Move)}.
+	 * @param handler the MoveHandler to search. It is not modified.
+	 * @param millis the time budget in milliseconds
+	 * @return the best move found, null if there are no legal moves
+	 */
+	public Move findBestMove(MoveHandler handler, long millis){
+		SearchResult result = search(handler.copyPosition(), MAX_PLY - 1, millis, Long.MAX_VALUE);
+		return (result.getBestMove() == PackedMove.NONE) ? null : handler.getMove(result.getBestMove());
+	}
+	
+	/**
+	 * searches a position.
+	 * @param position the position to search. It is modified while searching but is back in its original state when this method returns.
+	 * @param maxDepth the deepest iteration to run, at most {@code MAX_PLY - 1}
+	 * @param millis the time budget in milliseconds
+	 * @param maxNodes the node budget
+	 * @return the result of the deepest completed iteration. If the search is stopped during the first iteration, the best root move found so far, or the first legal move
+	 *         if none was finished; the best move is only PackedMove.NONE when there are no legal moves.
+	 */
+	public SearchResult search(BitBoard position, int maxDepth, long millis, long maxNodes){
+		long start = System.nanoTime();
+		this.position = position;
+		this.deadline = start + millis * 1000000L;
+		this.maxNodes = maxNodes;
+		nodes = 0;
+		stopped = false;
+		for(int[] k : killers){
+			Arrays.fill(k, PackedMove.NONE);
+		}
+		for(int[] h : history){
+			Arrays.fill(h, 0);
+		}
+		Arrays.fill(previousPv, PackedMove.NONE);
+		table.newSearch();
+		keys[0] = position.getKey();
+		
+		int[] bestPv = new int[0];
+		int bestScore = 0;
+		int completed = 0;
+		for(int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++){
+			int score = negamax(depth, -INFINITY, INFINITY, 0);
+			//an interrupted iteration is only trusted for the first depth, where it is all there is
+			if(stopped && completed > 0)break;
+			bestScore = score;
+			bestPv = Arrays.copyOf(pv[0], pvLength[0]);
+			completed = depth;
+			System.arraycopy(bestPv, 0, previousPv, 0, bestPv.length);
+			if(stopped || Math.abs(score) >= MATE - MAX_PLY)break;
+		}
+		//a search stopped before any root move was finished still answers with a legal move, as long as there is one
+		if(bestPv.length == 0 && MoveGenerator.generate(position, moves[0]) > 0){
+			bestPv = new int[]{moves[0][0]};
+		}
+		return new SearchResult(bestPv, bestScore, completed, nodes, (System.nanoTime() - start) / 1000000L);
+	}
+	
+	/**
+	 * stops the search in progress as soon as possible. The search still returns the result of its last completed iteration.
+	 */
+	public void stop(){
+		stopped = true;
+	}
+	
+	/**
+	 * the main search.
+	 * @param depth the remaining depth
+	 * @param alpha the score the player to move is already guaranteed
+	 * @param beta the score the opponent is already guaranteed
+	 * @param ply the distance from the root
+	 * @return the score of the position for the player to move
+	 */
+	private int negamax(int depth, int alpha, int beta, int ply){
+		pvLength[ply] = 0;
+		if(countNode())return 0;
+		if(ply > 0 && isRepetition(ply))return 0;
+		
+		long key = keys[ply];
+		long entry = table.probe(key);
+		int hashMove = TranspositionTable.getMove(entry);
+		if(ply > 0 && entry != TranspositionTable.MISS && TranspositionTable.getDepth(entry) >= depth){
+			int stored = fromTable(TranspositionTable.getScore(entry), ply);
+			int bound = TranspositionTable.getBound(entry);
+			if(bound == TranspositionTable.EXACT
+					|| (bound == TranspositionTable.LOWER && stored >= beta)
+					|| (bound == TranspositionTable.UPPER && stored <= alpha)){
+				return stored;
+			}
+		}
+		int originalAlpha = alpha;
+		int originalDepth = depth;
+		
+		int king = position.getKingSquare(position.getTurn());
+		boolean inCheck = king != BitBoard.NONE && position.isAttacked(king, position.getTurn().getOpponent());
+		if(inCheck)depth++;
+		if(depth <= 0 || ply >= MAX_PLY - 1)return quiesce(alpha, beta, ply);
+		
+		int[] list = moves[ply];
+		int count = MoveGenerator.generate(position, list);
+		if(count == 0)return (inCheck) ? -MATE + ply : 0;
+		scoreMoves(ply, count, hashMove, false);
+		
+		int best = -INFINITY;
+		int bestMove = PackedMove.NONE;
+		for(int i = 0; i < count; i++){
+			int move = pickNext(ply, i, count);
+			position.make(move);
+			keys[ply + 1] = position.getKey();
+			int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+			position.unmake(move);
+			if(stopped)return 0;
+			
+			if(score > best){
+				best = score;
+				bestMove = move;
+				if(score > alpha){
+					alpha = score;
+					updatePv(ply, move);
+					if(alpha >= beta){
+						if(!PackedMove.isCapture(move)){
+							rememberQuiet(move, ply, depth);
+						}
+						break;
+					}
+				}
+			}
+		}
+		int bound = (best >= beta) ? TranspositionTable.LOWER : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(key, bestMove, toTable(best, ply), originalDepth, bound);
+		return best;
+	}
+	
+	/**
+	 * searches captures only, until the position is quiet.
+	 * @return the score of the position for the player to move
+	 */
+	private int quiesce(int alpha, int beta, int ply){
+		pvLength[ply] = 0;
+		int standPat = Evaluation.evaluate(position);
+		if(ply >= MAX_PLY - 1)return standPat;
+		if(standPat >= beta)return standPat;
+		if(standPat > alpha)alpha = standPat;
+		
+		int[] list = moves[ply];
+		int count = MoveGenerator.generate(position, list);
+		if(count == 0){
+			int king = position.getKingSquare(position.getTurn());
+			return (king != BitBoard.NONE && position.isAttacked(king, position.getTurn().getOpponent())) ? -MATE + ply : 0;
+		}
+		scoreMoves(ply, count, PackedMove.NONE, true);
+		
+		int best = standPat;
+		for(int i = 0; i < count; i++){
+			int move = pickNext(ply, i, count);
+			if(!PackedMove.isCapture(move))break;
+			if(countNode())return 0;
+			position.make(move);
+			int score = -quiesce(-beta, -alpha, ply + 1);
+			position.unmake(move);
+			if(stopped)return 0;
+			
+			if(score > best){
+				best = score;
+				if(score > alpha){
+					alpha = score;
+					updatePv(ply, move);
+					if(alpha >= beta)break;
+				}
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * counts a node and checks the budgets every so often.
+	 * @return whether or not the search has been stopped
+	 */
+	private boolean countNode(){
+		if((++nodes & CHECK_INTERVAL) == 0 && (nodes >= maxNodes || System.nanoTime() >= deadline)){
+			stopped = true;
+		}
+		return stopped;
+	}
+	
+	/**
+	 * @return whether or not the position at ply already occurred earlier in the line being searched
+	 */
+	private boolean isRepetition(int ply){
+		for(int i = ply - 2; i >= 0; i -= 2){
+			if(keys[i] == keys[ply])return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * converts a score relative to the root into one relative to the current position for storing, so that a mate found through a transposition keeps the right distance.
+	 */
+	private static int toTable(int score, int ply){
+		if(score >= MATE - MAX_PLY)return score + ply;
+		if(score <= -MATE + MAX_PLY)return score - ply;
+		return score;
+	}
+	
+	/**
+	 * converts a score read from the transposition table back into one relative to the root.
+	 */
+	private static int fromTable(int score, int ply){
+		if(score >= MATE - MAX_PLY)return score - ply;
+		if(score <= -MATE + MAX_PLY)return score + ply;
+		return score;
+	}
+	
+	/**
+	 * gives every move in a ply's list an ordering score.
+	 * @param ply the ply whose moves are scored
+	 * @param count the number of moves
+	 * @param hashMove the best move stored in the transposition table, if any
+	 * @param capturesOnly whether or not quiet moves can be left unscored
+	 */
+	private void scoreMoves(int ply, int count, int hashMove, boolean capturesOnly){
+		int[] list = moves[ply];
+		int[] score = scores[ply];
+		for(int i = 0; i < count; i++){
+			int move = list[i];
+			int from = PackedMove.getFrom(move);
+			int to = PackedMove.getTo(move);
+			int attacker = position.pieceAt(from);
+			if((move == hashMove || move == previousPv[ply]) && !capturesOnly){
+				score[i] = PV_SCORE;
+			}else if(PackedMove.isCapture(move)){
+				int victim = position.pieceAt(to);
+				int value = (victim == BitBoard.NONE) ? Evaluation.value(Type.pawn) : Evaluation.valueOf(victim);
+				score[i] = CAPTURE_SCORE + value * 64 - Evaluation.valueOf(attacker) / 16;
+			}else if(capturesOnly){
+				score[i] = 0;
+			}else if(move == killers[ply][0]){
+				score[i] = FIRST_KILLER_SCORE;
+			}else if(move == killers[ply][1]){
+				score[i] = SECOND_KILLER_SCORE;
+			}else{
+				score[i] = history[attacker][to];
+			}
+		}
+	}
+	
+	/**
+	 * selects the highest scored remaining move and swaps it into position i.
+	 * @return the selected move
+	 */
+	private int pickNext(int ply, int i, int count){
+		int[] list = moves[ply];
+		int[] score = scores[ply];
+		int best = i;
+		for(int j = i + 1; j < count; j++){
+			if(score[j] > score[best])best = j;
+		}
+		int move = list[best];
+		list[best] = list[i];
+		list[i] = move;
+		int s = score[best];
+		score[best] = score[i];
+		score[i] = s;
+		return move;
+	}
+	
+	/**
+	 * records a quiet move that caused a cutoff as a killer of its ply and raises its history score.
+	 */
+	private void rememberQuiet(int move, int ply, int depth){
+		if(killers[ply][0] != move){
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int[] h = history[position.pieceAt(PackedMove.getFrom(move))];
+		int to = PackedMove.getTo(move);
+		h[to] = Math.min(h[to] + depth * depth, SECOND_KILLER_SCORE - 1);
+	}
+	
+	/**
+	 * makes move followed by the principal variation of the next ply the principal variation of this ply.
+	 */
+	private void updatePv(int ply, int move){
+		pv[ply][0] = move;
+		int length = (ply + 1 < MAX_PLY) ? pvLength[ply + 1] : 0;
+		System.arraycopy(pv[ply + 1], 0, pv[ply], 1, Math.min(length, MAX_PLY - 1));
+		pvLength[ply] = Math.min(length + 1, MAX_PLY);
+	}
+}
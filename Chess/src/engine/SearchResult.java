@@ -0,0 +1,84 @@
+package engine;
+
+import model.PackedMove;
+
+/**
+ * The outcome of a search. Immutable.
+ */
+public final class SearchResult{
+	private final int bestMove;
+	private final int score;
+	private final int depth;
+	private final long nodes;
+	private final long millis;
+	private final int[] pv;
+	
+	/**
+	 * @param pv the principal variation, starting with the best move
+	 * @param score the score of the best move for the player to move, in centipawns
+	 * @param depth the deepest iteration that was completed
+	 * @param nodes the number of nodes searched
+	 * @param millis the time taken in milliseconds
+	 */
+	SearchResult(int[] pv, int score, int depth, long nodes, long millis){
+		this.pv = pv;
+		this.bestMove = (pv.length == 0) ? PackedMove.NONE : pv[0];
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.millis = millis;
+	}
+	
+	/**
+	 * @return the best move found as a packed move, {@code PackedMove.NONE} if the position has no legal moves.
+	 */
+	public int getBestMove(){
+		return bestMove;
+	}
+	
+	/**
+	 * @return the score of the best move for the player to move, in centipawns. Scores beyond {@code Search.MATE - Search.MAX_PLY} in either direction are forced mates.
+	 */
+	public int getScore(){
+		return score;
+	}
+	
+	/**
+	 * @return the deepest iteration that was completed
+	 */
+	public int getDepth(){
+		return depth;
+	}
+	
+	/**
+	 * @return the number of nodes searched
+	 */
+	public long getNodes(){
+		return nodes;
+	}
+	
+	/**
+	 * @return the time taken in milliseconds
+	 */
+	public long getMillis(){
+		return millis;
+	}
+	
+	/**
+	 * @return a copy of the principal variation, starting with the best move
+	 */
+	public int[] getPrincipalVariation(){
+		return pv.clone();
+	}
+	
+	/**
+	 * returns a string representation of this result
+	 */
+	public String toString(){
+		StringBuilder result = new StringBuilder("depth " + depth + " score " + score + " nodes " + nodes + " time " + millis + " pv:");
+		for(int move : pv){
+			result.append(" (").append(PackedMove.toString(move)).append(')');
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,167 @@
+package engine;
+
+import java.util.Arrays;
+
+import model.PackedMove;
+
+/**
+ * A fixed size hash table of search results, keyed by the Zobrist key of a position. Each entry is two longs, sixteen bytes, so the table is sized from a memory budget
+ * and lives in one flat array that the garbage collector never has to look inside.
+ * 
+ * The table can be shared by any number of searching threads without locking. An entry is written as the key XORed with the data, followed by the data. A reader accepts an
+ * entry only when the two longs it read XOR back to the key it is looking for, so an entry torn by a concurrent write is seen as a miss rather than as wrong data.
+ * 
+ * The data of an entry is packed into a long: the best move in bits 0-19, the score in bits 20-35, the depth in bits 36-43, the bound in bits 44-45 and the age in bits
+ * 46-53. Use the static getters to read a probed entry.
+ */
+public class TranspositionTable{
+	/**
+	 * the result of a probe that found nothing. Its bound is NONE.
+	 */
+	public static final long MISS = 0;
+	
+	public static final int NONE = 0;
+	/**
+	 * the score is at most the stored score.
+	 */
+	public static final int UPPER = 1;
+	/**
+	 * the score is at least the stored score.
+	 */
+	public static final int LOWER = 2;
+	public static final int EXACT = 3;
+	
+	private static final int ENTRY_BYTES = 16;
+	private static final int MOVE_BITS = 20;
+	private static final int SCORE_SHIFT = 20;
+	private static final int DEPTH_SHIFT = 36;
+	private static final int BOUND_SHIFT = 44;
+	private static final int AGE_SHIFT = 46;
+	private static final int SCORE_OFFSET = 1 << 15;
+	private static final int AGE_MASK = 0xFF;
+	
+	private final long[] table;
+	private final int mask;
+	private volatile int age;
+	
+	/**
+	 * creates a table using at most the given amount of memory. The number of entries is rounded down to a power of two.
+	 * @param megabytes the memory budget, at least 1
+	 */
+	public TranspositionTable(int megabytes){
+		if(megabytes < 1)throw new IllegalArgumentException("transposition table size must be at least 1 MB: " + megabytes);
+		long entries = Long.highestOneBit((long)megabytes * 1024 * 1024 / ENTRY_BYTES);
+		entries = Math.min(entries, 1 << 29);
+		table = new long[(int)entries * 2];
+		mask = (int)entries - 1;
+	}
+	
+	/**
+	 * looks up a position.
+	 * @param key the Zobrist key of the position
+	 * @return the packed data of the entry, or MISS if the position is not in the table
+	 */
+	public long probe(long key){
+		int index = index(key);
+		long data = table[index + 1];
+		long check = table[index];
+		return ((check ^ data) == key && getBound(data) != NONE) ? data : MISS;
+	}
+	
+	/**
+	 * stores the result of searching a position. An entry for a different position is only replaced when it is from an earlier search or was searched no deeper than this
+	 * one; an entry for the same position is always replaced.
+	 * @param key the Zobrist key of the position
+	 * @param move the best move found, as a packed move
+	 * @param score the score found
+	 * @param depth the depth searched, between 0 and 255
+	 * @param bound which of UPPER, LOWER or EXACT the score is
+	 */
+	public void store(long key, int move, int score, int depth, int bound){
+		int index = index(key);
+		long oldData = table[index + 1];
+		long oldKey = table[index] ^ oldData;
+		int current = age;
+		if(oldKey != key && getBound(oldData) != NONE && getAge(oldData) == current && getDepth(oldData) > depth)return;
+		
+		//keep the old move if this search did not find one
+		if(move == PackedMove.NONE && oldKey == key){
+			move = getMove(oldData);
+		}
+		long data = (move & ((1L << MOVE_BITS) - 1))
+				| ((long)(score + SCORE_OFFSET) << SCORE_SHIFT)
+				| ((long)depth << DEPTH_SHIFT)
+				| ((long)bound << BOUND_SHIFT)
+				| ((long)current << AGE_SHIFT);
+		table[index] = key ^ data;
+		table[index + 1] = data;
+	}
+	
+	/**
+	 * starts a new search. Entries from earlier searches become the first to be replaced.
+	 */
+	public void newSearch(){
+		age = (age + 1) & AGE_MASK;
+	}
+	
+	/**
+	 * empties the table.
+	 */
+	public void clear(){
+		Arrays.fill(table, 0);
+	}
+	
+	/**
+	 * @return the number of entries the table holds
+	 */
+	public int getCapacity(){
+		return mask + 1;
+	}
+	
+	/**
+	 * @return the index in the table of the first long of the entry for key
+	 */
+	private int index(long key){
+		return ((int)key & mask) << 1;
+	}
+	
+	/**
+	 * @param data the result of a probe
+	 * @return the best move of the entry, as a packed move
+	 */
+	public static int getMove(long data){
+		return (int)(data & ((1L << MOVE_BITS) - 1));
+	}
+	
+	/**
+	 * @param data the result of a probe
+	 * @return the score of the entry
+	 */
+	public static int getScore(long data){
+		return (int)((data >>> SCORE_SHIFT) & 0xFFFF) - SCORE_OFFSET;
+	}
+	
+	/**
+	 * @param data the result of a probe
+	 * @return the depth the entry was searched to
+	 */
+	public static int getDepth(long data){
+		return (int)((data >>> DEPTH_SHIFT) & 0xFF);
+	}
+	
+	/**
+	 * @param data the result of a probe
+	 * @return which of NONE, UPPER, LOWER or EXACT the score of the entry is
+	 */
+	public static int getBound(long data){
+		return (int)((data >>> BOUND_SHIFT) & 3);
+	}
+	
+	/**
+	 * @param data the result of a probe
+	 * @return the search the entry was stored in
+	 */
+	private static int getAge(long data){
+		return (int)((data >>> AGE_SHIFT) & AGE_MASK);
+	}
+}
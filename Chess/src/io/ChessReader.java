@@ -3,12 +3,17 @@ package io;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import model.BitBoard;
 import model.Board;
+import model.GameState;
 import model.Location;
+import model.MoveGenerator;
 import model.MoveHandler;
+import model.PackedMove;
 import model.Piece;
 import model.Player;
 import model.Type;
@@ -16,6 +21,10 @@ import model.Type;
 /**
  * This is an IO class for reading text commands to initialize a Chess board.
  * 
+ * There are two ways of reading. {@code readGame()} builds a single MoveHandler, displaying the board after every move. {@code readGames()} streams any number of games to a
+ * GameListener for bulk ingestion: lines are tokenized by hand rather than by regex, moves are played on a BitBoard, and nothing is written to the console. In a file of
+ * several games, games are separated by one or more blank lines. A game that starts with a move rather than a placement starts from the standard position.
+ * 
  * @author kstimson
  *
  */
@@ -24,6 +33,20 @@ public class ChessReader extends Reader{
 	private static final String SINGLE = "(" + Location.REGEX + ") (" + Location.REGEX + ")(\\*??)";
 	private static final String DOUBLE = "(" + Location.REGEX + ") (" + Location.REGEX + ") (" + Location.REGEX + ") (" + Location.REGEX + ")";
 	
+	private static final int BUFFER_SIZE = 8192;
+	private static final int LINE_SIZE = 64;
+	private static final Type[] TYPES_BY_CHAR = new Type[128];
+	private static final Player[] PLAYERS_BY_CHAR = new Player[128];
+	
+	static{
+		for(Type t : Type.values()){
+			TYPES_BY_CHAR[t.toFileString().charAt(0)] = t;
+		}
+		for(Player p : Player.values()){
+			PLAYERS_BY_CHAR[p.toFileString().charAt(0)] = p;
+		}
+	}
+	
 	/**
 	 * The underlying input Reader. 
 	 */
@@ -40,7 +63,6 @@ public class ChessReader extends Reader{
 	 */
 	public ChessReader(Reader r){
 		in = new BufferedReader(r);
-		handler = new MoveHandler(new Board(false));
 	}
 
 	/**
@@ -68,6 +90,7 @@ public class ChessReader extends Reader{
 	 * @throws IOException if an IOException occurs
 	 */
 	public MoveHandler readGame()throws IOException{
+		handler = new MoveHandler(new Board(false));
 		Pattern placement = Pattern.compile(PLACEMENT);
 		Pattern single = Pattern.compile(SINGLE);
 		Pattern complex = Pattern.compile(DOUBLE);
@@ -105,6 +128,38 @@ public class ChessReader extends Reader{
 		return handler;
 	}
 	
+	/**
+	 * streams every game in the file to a listener, then closes this reader.
+	 * @param listener the listener to receive the games' events
+	 * @return the number of games read
+	 * @throws IOException if an IOException occurs
+	 */
+	public int readGames(GameListener listener)throws IOException{
+		GameStream stream = new GameStream(listener);
+		char[] buffer = new char[BUFFER_SIZE];
+		char[] line = new char[LINE_SIZE];
+		int length = 0;
+		int n;
+		
+		while((n = in.read(buffer, 0, buffer.length)) != -1){
+			for(int i = 0; i < n; i++){
+				char c = buffer[i];
+				if(c == '\n'){
+					stream.line(line, length);
+					length = 0;
+				}else if(c != '\r'){
+					if(length == line.length)line = Arrays.copyOf(line, length * 2);
+					line[length++] = c;
+				}
+			}
+		}
+		if(length > 0)stream.line(line, length);
+		stream.endGame();
+		
+		close();
+		return stream.games;
+	}
+	
 	/**
 	 * This will actually process the placement information for manipulating the board prior to it being returned.
 	 * @param type the type of the piece to be placed.
@@ -112,7 +167,7 @@ public class ChessReader extends Reader{
 	 * @param location the location the piece is going to be placed.
 	 */
 	private void processPlacement(String type, String player, String location){
-		handler.addPiece(Location.valueOf(location), new Piece(Type.getByFileString(type), Player.getByFileString(player)));
+		handler.addPiece(Location.valueOf(location), Piece.valueOf(Type.getByFileString(type), Player.getByFileString(player)));
 	}
 	
 	/**
@@ -141,4 +196,130 @@ public class ChessReader extends Reader{
 	private void processDouble(String start1, String end1, String start2, String end2){
 		System.out.println("Double Piece Movement: " + start1 + " to " + end1 + ", " + start2 + " to " + end2);
 	}
+	
+	/**
+	 * @param text the characters of a line
+	 * @param offset the position of the file letter of a square in the line
+	 * @return the square index of the square written at offset, {@code BitBoard.NONE} if it is not a square
+	 */
+	private static int parseSquare(char[] text, int offset){
+		int x = text[offset] - 'a';
+		int y = text[offset + 1] - '1';
+		if(x < 0 || x >= Location.SIZE || y < 0 || y >= Location.SIZE)return BitBoard.NONE;
+		return y * Location.SIZE + x;
+	}
+	
+	/**
+	 * the state of a stream of games being read by {@code readGames()}.
+	 */
+	private static class GameStream{
+		private static final BitBoard START = new MoveHandler(new Board(true)).copyPosition();
+		
+		private GameListener listener;
+		private BitBoard position;
+		private int[] moves = new int[MoveGenerator.MAX_MOVES];
+		private int games = 0;
+		private int lineNumber = 0;
+		private boolean inGame = false;
+		private boolean empty;
+		private boolean valid;
+		private boolean failed;
+		
+		private GameStream(GameListener listener){
+			this.listener = listener;
+		}
+		
+		/**
+		 * processes one line of the file.
+		 * @param text the characters of the line, without the line terminator
+		 * @param length the number of characters in the line
+		 */
+		private void line(char[] text, int length){
+			lineNumber++;
+			while(length > 0 && (text[length - 1] == ' ' || text[length - 1] == '\t'))length--;
+			if(length == 0){
+				endGame();
+				return;
+			}
+			if(!inGame)startGame();
+			
+			if(length == 4){
+				Type type = (text[0] < 128) ? TYPES_BY_CHAR[text[0]] : null;
+				Player player = (text[1] < 128) ? PLAYERS_BY_CHAR[text[1]] : null;
+				int square = parseSquare(text, 2);
+				if(type == null || player == null || square == BitBoard.NONE){
+					error(text, length, "Invalid command");
+				}else if(position.isOccupied(square)){
+					error(text, length, "There is already a piece in location: " + Location.valueOf(square));
+				}else{
+					position.put(square, type, player);
+					position.setMoved(square, false);
+					empty = false;
+				}
+			}else if((length == 5 || (length == 6 && text[5] == '*')) && text[2] == ' '){
+				int from = parseSquare(text, 0);
+				int to = parseSquare(text, 3);
+				if(from == BitBoard.NONE || to == BitBoard.NONE){
+					error(text, length, "Invalid command");
+				}else{
+					move(text, length, from, to);
+				}
+			}else if(length == 11 && text[2] == ' ' && text[5] == ' ' && text[8] == ' '){
+				error(text, length, "Two piece movement is not supported");
+			}else{
+				error(text, length, "Invalid command");
+			}
+		}
+		
+		/**
+		 * plays the legal move between two squares, if there is one.
+		 */
+		private void move(char[] text, int length, int from, int to){
+			if(failed)return;
+			if(empty){
+				position = START.copy();
+				empty = false;
+			}
+			int count = MoveGenerator.generate(position, moves);
+			for(int i = 0; i < count; i++){
+				if(PackedMove.getFrom(moves[i]) == from && PackedMove.getTo(moves[i]) == to){
+					listener.moveRead(games - 1, position, moves[i]);
+					position.make(moves[i]);
+					return;
+				}
+			}
+			error(text, length, (position.isOccupied(from)) ? "Invalid Move" : "There is no piece located at: " + Location.valueOf(from));
+			failed = true;
+		}
+		
+		/**
+		 * reports a line that could not be processed and marks the game invalid.
+		 */
+		private void error(char[] text, int length, String reason){
+			valid = false;
+			listener.error(games - 1, lineNumber, new String(text, 0, length), reason);
+		}
+		
+		private void startGame(){
+			inGame = true;
+			empty = true;
+			valid = true;
+			failed = false;
+			position = new BitBoard();
+			listener.gameStarted(games++);
+		}
+		
+		/**
+		 * ends the current game, if there is one.
+		 */
+		private void endGame(){
+			if(!inGame)return;
+			inGame = false;
+			int count = MoveGenerator.generate(position, moves);
+			int king = position.getKingSquare(position.getTurn());
+			boolean threatened = king != BitBoard.NONE && position.isAttacked(king, position.getTurn().getOpponent());
+			GameState state = (count == 0) ? ((threatened) ? GameState.checkmate : GameState.stalemate) : (threatened) ? GameState.check : GameState.ingame;
+			listener.gameEnded(games - 1, position, state, valid);
+		}
+	}
 }
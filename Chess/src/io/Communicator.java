@@ -1,71 +1,296 @@
 package io;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import model.GameActor;
 import model.MoveHandler;
 import model.Player;
-import view.GamePanel;
 
 /**
- * Handles all of the communication whther acting server or client
+ * Handles all of the communication whther acting server or client. Moves are sent as Frames of the binary Protocol; a hello is exchanged first, so a peer speaking something else
+ * is refused before any move is read.
+ * 
+ * Reading and writing are done by two blocking loops. By default each runs on a thread of its own, but any Executor can be given to run them instead, such as a shared pool or,
+ * on a runtime that has them, an executor that starts a virtual thread per task. Either way, {@code kill()} closes the socket and interrupts the writer, so neither loop is
+ * left blocked once the connection is over.
+ * 
+ * Packets wait to be sent in a bounded queue. The writer takes everything waiting at once and sends it with a single flush. What happens when the queue is full is decided by
+ * the Backpressure policy: the sender either waits for room or the connection is dropped as too slow. The game's GameActor never waits, though, since one slow peer would
+ * then hold up every command of the game: a packet sent while running a command is dropped along with the connection if the queue is full, whatever the policy. The depth of
+ * the queue and the time spent writing can be read at any time.
+ * 
+ * A GameServer decides who plays which side and says so in START, which takes the place of the side given when the Communicator was made. If it rejects a move, the
+ * Communicator asks it for a SNAPSHOT, so the move made locally is replaced by the server's position.
+ * 
+ * Moves are numbered by ply, so a repeated move is ignored. When playing through a GameServer, a dropped connection need not end the game: {@code reconnect()} opens a new
+ * Communicator that asks the server for only the moves it missed, and sends again its own last move if the server never received it.
+ * 
+ * A Communicator opened with {@code watch()} follows a GameServer's game without playing in it: it is sent the position and then every move, and sends nothing itself.
+ * 
+ * Everything received is applied to the game as a Command on its GameActor, so the reader never changes the MoveHandler itself. The view hears of the change from the actor.
  * @author kstimson
  *
  */
 public class Communicator{
+	/**
+	 * the number of packets that may wait to be sent unless another is chosen.
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+	/**
+	 * the most packets written with one flush.
+	 */
+	private static final int MAX_BATCH = 64;
+	
+	/**
+	 * what {@code sendPacket()} does when the outbound queue is full.
+	 */
+	public static enum Backpressure{
+		/**
+		 * wait until there is room, or the communicator is killed. The GameActor's writer does not wait, see above.
+		 */
+		block,
+		/**
+		 * kill the communicator, since the other side is not keeping up.
+		 */
+		disconnect;
+	}
+	
 	private Socket sock;
-	private Player player;
+	private volatile Player player;
 	private volatile boolean kill = false;
-	private LinkedBlockingQueue<MovementPacket> outQueue = new LinkedBlockingQueue<MovementPacket>();
-	private Thread inThread = new Thread(new Input());
-	private Thread outThread = new Thread(new Output());
-	private MoveHandler model;
-	private GamePanel view;
+	private final BlockingQueue<Frame> outQueue;
+	private final int capacity;
+	private final int batchSize;
+	private final Backpressure backpressure;
+	private final Executor executor;
+	private final Frame opening;
+	private volatile int gameId;
+	private volatile long token;
+	private volatile MovementPacket lastSent;
+	private Thread outThread;
+	private GameActor game;
+	private volatile int version;
+	//only written by the writer
+	private volatile long packetsSent = 0;
+	private volatile long flushes = 0;
+	private volatile long writeNanos = 0;
+	private volatile long maxWriteNanos = 0;
+	private volatile int maxDepth = 0;
+	//only written by the game's writer, apart from rejected which is only written by the reader
+	private volatile long repeatedMoves = 0;
+	private volatile long lostPlies = 0;
+	private volatile long rejectedMoves = 0;
+	//written by whichever thread found the outbound queue full
+	private volatile long fullQueueDisconnects = 0;
 
 	/**
 	 * creates a Communicator that sends information through the given socket.
 	 * @param sock the socket that is used to pass information over the network
 	 * @param p the player that this communicator stands in for
-	 * @param model the model for the program
-	 * @param view the view for the program
+	 * @param game the game that moves are received for
 	 */
-	public Communicator(Socket sock, Player p, MoveHandler model, GamePanel view){
+	public Communicator(Socket sock, Player p, GameActor game){
+		this(sock, p, game, new Executor(){
+			public void execute(Runnable command){
+				new Thread(command).start();
+			}
+		});
+	}
+	
+	/**
+	 * creates a Communicator that sends information through the given socket, running its reading and writing loops on an executor.
+	 * @param sock the socket that is used to pass information over the network
+	 * @param p the player that this communicator stands in for
+	 * @param game the game that moves are received for
+	 * @param executor runs the two loops. Each loop blocks for as long as the connection lasts, so the executor must be able to run both at once. It is not shut down by this class.
+	 */
+	public Communicator(Socket sock, Player p, GameActor game, Executor executor){
+		this(sock, p, game, executor, DEFAULT_CAPACITY, Backpressure.block);
+	}
+	
+	/**
+	 * creates a Communicator that sends information through the given socket, running its reading and writing loops on an executor and holding at most a given number of
+	 * packets waiting to be sent.
+	 * @param sock the socket that is used to pass information over the network
+	 * @param p the player that this communicator stands in for
+	 * @param game the game that moves are received for
+	 * @param executor runs the two loops. See above.
+	 * @param capacity the number of packets that may wait to be sent
+	 * @param backpressure what to do when a packet is sent while the queue is full
+	 */
+	public Communicator(Socket sock, Player p, GameActor game, Executor executor, int capacity, Backpressure backpressure){
+		this(sock, p, game, executor, capacity, backpressure, new Frame(Frame.JOIN, Frame.NONE, 0, (short)0), -1, 0, null);
+	}
+	
+	/**
+	 * @param opening the first frame to send, JOIN, RESUME or WATCH
+	 * @param gameId the id of the game being resumed, -1 if none
+	 * @param token the seat token sent after a RESUME
+	 * @param lastSent the last move sent by the Communicator being replaced, null if none
+	 */
+	private Communicator(Socket sock, Player p, GameActor game, Executor executor, int capacity, Backpressure backpressure, Frame opening, int gameId, long token, MovementPacket lastSent){
+		if(capacity < 1)throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+		this.outQueue = new ArrayBlockingQueue<Frame>(capacity);
+		this.capacity = capacity;
+		this.batchSize = Math.min(capacity, MAX_BATCH);
+		this.backpressure = backpressure;
+		this.executor = executor;
+		this.opening = opening;
+		this.gameId = gameId;
+		this.token = token;
+		this.lastSent = lastSent;
 		this.player = p;
 		this.sock = sock;
-		this.model = model;
-		this.view = view;
-		inThread.start();
-		outThread.start();
+		this.game = game;
+		executor.execute(new Input());
+		executor.execute(new Output());
+	}
+	
+	/**
+	 * opens a Communicator that watches a game on a GameServer. The game is set to the server's position as soon as it arrives and then follows every move made. A watcher
+	 * plays neither side, so {@code getPlayer()} returns null and packets sent through it are dropped.
+	 * @param sock the connection to the server
+	 * @param gameId the id of the game to watch, as given by {@code getGameId()} to its players
+	 * @param game the game to show the watched game in
+	 * @param executor runs the two loops. See above.
+	 * @return the watching Communicator
+	 */
+	public static Communicator watch(Socket sock, int gameId, GameActor game, Executor executor){
+		return new Communicator(sock, null, game, executor, DEFAULT_CAPACITY, Backpressure.block, new Frame(Frame.WATCH, Frame.NONE, gameId, (short)0), gameId, 0, null);
+	}
+	
+	/**
+	 * opens a Communicator that watches a game on a GameServer, as {@code watch(Socket, int, GameActor, Executor)}, with each loop on a thread of its own.
+	 * @param sock the connection to the server
+	 * @param gameId the id of the game to watch
+	 * @param game the game to show the watched game in
+	 * @return the watching Communicator
+	 */
+	public static Communicator watch(Socket sock, int gameId, GameActor game){
+		return watch(sock, gameId, game, new Executor(){
+			public void execute(Runnable command){
+				new Thread(command).start();
+			}
+		});
+	}
+	
+	/**
+	 * kills this communicator and carries on its game over a new connection to the same GameServer. The new Communicator resumes the game from the latest published Position,
+	 * and becomes the game's Communicator if this one was. The RESUME carries the seat token the server sent in START. If moves are still waiting to be made by the actor, the
+	 * server sends them again and the copies are ignored.
+	 * @param sock the new connection
+	 * @return the new Communicator
+	 * @throws IllegalStateException if this communicator is not playing a game started by a GameServer
+	 */
+	public Communicator reconnect(Socket sock){
+		if(gameId < 0 || isWatching())throw new IllegalStateException("Only a game started by a GameServer can be resumed");
+		kill();
+		Frame resume = Frame.resume(gameId, player.getOpponent(), game.getPosition().getPly());
+		final Communicator com = new Communicator(sock, player, game, executor, capacity, backpressure, resume, gameId, token, lastSent);
+		game.submit(new GameActor.Command(){
+			public void execute(MoveHandler model){
+				if(model.getCom() == Communicator.this)model.setComHandler(com);
+			}
+		});
+		return com;
 	}
 
 	/**
-	 * implementation detail. Do not worry about this. The only important thing is that this thread is what executes the move
-	 * then updates the view.
+	 * implementation detail. Do not worry about this. The only important thing is that this thread is what passes moves on to the game.
 	 * @author kstimson
 	 *
 	 */
 	private class Input implements Runnable{
 		public void run(){
-			try(ObjectInputStream in = new ObjectInputStream(sock.getInputStream())){
+			try(DataInputStream in = new DataInputStream(new BufferedInputStream(sock.getInputStream()))){
+				version = Protocol.readHello(in);
 				while(!kill){
-					try {
-						Object obj = in.readObject();
-						System.out.println(obj);
-						MovementPacket pack = (MovementPacket)obj;
-						model.makeMove(pack.getFrom(), pack.getTo());
-						view.repaint();
-					} catch (ClassNotFoundException ex) {
-						ex.printStackTrace();
+					final Frame frame = Frame.read(in);
+					switch(frame.getType()){
+					case Frame.MOVE:
+						game.submit(new GameActor.Command(){
+							public void execute(MoveHandler model){
+								receive(model, frame);
+							}
+						});
+						break;
+					case Frame.START:
+						gameId = frame.getSequence();
+						token = in.readLong();
+						//the payload is the side we play, and this communicator stands in for the other one
+						int side = frame.getPayload();
+						if(side < 0 || side >= Player.values().length)throw new IOException("START names no side (" + side + ")");
+						player = Player.values()[side].getOpponent();
+						break;
+					case Frame.REJECT:
+						rejectedMoves++;
+						lastSent = null;
+						game.submit(new GameActor.Command(){
+							public void execute(MoveHandler model){
+								send(new Frame(Frame.SNAPSHOT, Frame.NONE, model.getPly(), (short)0));
+							}
+						});
+						break;
+					case Frame.SNAPSHOT:
+						byte[] bytes = new byte[frame.getPayload() & 0xFFFF];
+						in.readFully(bytes);
+						final String fen = new String(bytes, StandardCharsets.US_ASCII);
+						game.submit(new GameActor.Command(){
+							public void execute(MoveHandler model){
+								model.setFen(fen);
+							}
+						});
+						break;
+					case Frame.SYNC:
+						game.submit(new GameActor.Command(){
+							public void execute(MoveHandler model){
+								//the server has not got our last move if it is one ply short of it
+								MovementPacket last = lastSent;
+								if(last != null && last.getPly() == frame.getSequence() + 1 && last.getPly() == model.getPly())sendPacket(last);
+							}
+						});
+						break;
+					default:
+						//JOIN and RESUME are meant for a GameServer
+						break;
 					}
 				}
-			}catch(IOException ex){
-				ex.printStackTrace();
+			}catch(IOException | RuntimeException ex){
+				//a malformed frame must not leave the game waiting on a dead reader
+				if(!kill)ex.printStackTrace();
 				kill();
 			}
 		}
+		
+		/**
+		 * makes a move received from the other side, unless it has been made already. Run by the game's writer.
+		 * @param model the game
+		 * @param frame the MOVE frame
+		 */
+		private void receive(MoveHandler model, Frame frame){
+			int ply = model.getPly();
+			if(frame.getSequence() <= ply){
+				repeatedMoves++;
+				return;
+			}
+			if(frame.getSequence() > ply + 1){
+				lostPlies += frame.getSequence() - ply - 1;
+			}
+			MovementPacket pack = frame.getPacket();
+			model.makeMove(pack.getFrom(), pack.getTo());
+		}
 	}
 	
 	/**
@@ -75,28 +300,65 @@ public class Communicator{
 	 */
 	private class Output implements Runnable{
 		public void run(){
-			try(ObjectOutputStream out = new ObjectOutputStream(sock.getOutputStream())){
+			synchronized(Communicator.this){
+				outThread = Thread.currentThread();
+			}
+			List<Frame> batch = new ArrayList<Frame>(batchSize);
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream(), Frame.SIZE * batchSize))){
+				Protocol.writeHello(out);
+				opening.write(out);
+				if(opening.getType() == Frame.RESUME)out.writeLong(token);
+				out.flush();
 				while(!kill){
 					try {
-						out.writeObject(outQueue.take());
+						int depth = outQueue.size();
+						if(depth > maxDepth)maxDepth = depth;
+						batch.add(outQueue.take());
+						outQueue.drainTo(batch, batchSize - 1);
+						
+						long start = System.nanoTime();
+						for(Frame frame : batch){
+							frame.write(out);
+						}
+						out.flush();
+						long elapsed = System.nanoTime() - start;
+						
+						packetsSent += batch.size();
+						flushes++;
+						writeNanos += elapsed;
+						if(elapsed > maxWriteNanos)maxWriteNanos = elapsed;
+						batch.clear();
 					} catch (InterruptedException ex) {
-						ex.printStackTrace();
+						if(!kill)ex.printStackTrace();
 					}
 				}
 			}catch(IOException ex){
-				ex.printStackTrace();
+				if(!kill)ex.printStackTrace();
 				kill();
+			}finally{
+				synchronized(Communicator.this){
+					outThread = null;
+					//the thread may belong to a pool, so it must not keep an interrupt meant for this loop
+					Thread.interrupted();
+				}
 			}
 		}
 	}
 
 	/**
-	 * kills all threads that this communicator uses.
+	 * stops both loops that this communicator uses. The socket is closed, which wakes the reader, and the writer is interrupted if it is waiting for a packet. Packets not yet
+	 * sent are dropped.
 	 */
 	public void kill(){
 		kill = true;
-		inThread.interrupt();
-		outThread.interrupt();
+		try{
+			sock.close();
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}
+		synchronized(this){
+			if(outThread != null)outThread.interrupt();
+		}
 	}
 
 	/**
@@ -108,19 +370,132 @@ public class Communicator{
 	}
 	
 	/**
-	 * @return the player represented by this communicator
+	 * @return the protocol version agreed on with the other side, 0 if the hello has not been read yet
+	 */
+	public int getVersion(){
+		return version;
+	}
+	
+	/**
+	 * @return the id of the game given by the GameServer, -1 if the game was not started by one
+	 */
+	public int getGameId(){
+		return gameId;
+	}
+	
+	/**
+	 * @return whether or not this communicator was opened with {@code watch()}
+	 */
+	public boolean isWatching(){
+		return opening.getType() == Frame.WATCH;
+	}
+	
+	/**
+	 * @return the player represented by this communicator, the opponent of the local player. Once a GameServer has sent START, this is the side it did not give us.
 	 */
 	public Player getPlayer(){
 		return player;
 	}
 	
 	/**
-	 * Puts a MovementPacket into the queue to be sent whenever able.
+	 * @return the number of packets waiting to be sent
+	 */
+	public int getQueueDepth(){
+		return outQueue.size();
+	}
+	
+	/**
+	 * @return the most packets the writer has found waiting to be sent at once
+	 */
+	public int getMaxQueueDepth(){
+		return maxDepth;
+	}
+	
+	/**
+	 * @return the number of packets sent
+	 */
+	public long getPacketsSent(){
+		return packetsSent;
+	}
+	
+	/**
+	 * @return the number of flushes the packets were sent with
+	 */
+	public long getFlushes(){
+		return flushes;
+	}
+	
+	/**
+	 * @return the total time spent writing and flushing, in nanoseconds
+	 */
+	public long getWriteNanos(){
+		return writeNanos;
+	}
+	
+	/**
+	 * @return the longest time a single write and flush has taken, in nanoseconds
+	 */
+	public long getMaxWriteNanos(){
+		return maxWriteNanos;
+	}
+	
+	/**
+	 * @return the number of moves received that had already been made, and so were ignored
+	 */
+	public long getRepeatedMoves(){
+		return repeatedMoves;
+	}
+	
+	/**
+	 * @return the number of plies skipped over by moves received ahead of the game
+	 */
+	public long getLostPlies(){
+		return lostPlies;
+	}
+	
+	/**
+	 * @return the number of moves the other side has rejected
+	 */
+	public long getRejectedMoves(){
+		return rejectedMoves;
+	}
+	
+	/**
+	 * @return the number of times this communicator was killed because its outbound queue was full
+	 */
+	public long getFullQueueDisconnects(){
+		return fullQueueDisconnects;
+	}
+	
+	/**
+	 * Puts a MovementPacket into the queue to be sent whenever able. If the queue is full, either waits for room or kills this communicator, depending on its Backpressure;
+	 * when called by the game's GameActor it never waits.
+	 * Packets sent after this communicator has been killed, or through a watcher, are dropped.
 	 * @param packet the packet to be sent across the network.
 	 */
 	public void sendPacket(MovementPacket packet){
+		if(isWatching())return;
+		lastSent = packet;
+		send(Frame.move(packet));
+	}
+	
+	/**
+	 * puts a frame into the queue, as {@code sendPacket()}.
+	 * @param frame the frame to be sent
+	 */
+	private void send(Frame frame){
+		boolean wait = backpressure == Backpressure.block && !game.isWriter();
 		try {
-			outQueue.put(packet);
+			while(!kill){
+				if(wait){
+					//wake now and then, so a sender is not stuck behind a writer that has stopped
+					if(outQueue.offer(frame, 100, TimeUnit.MILLISECONDS))return;
+				}else{
+					if(outQueue.offer(frame))return;
+					fullQueueDisconnects++;
+					kill();
+				}
+			}
 		} catch (InterruptedException ex) {
 			ex.printStackTrace();
 		}
@@ -0,0 +1,274 @@
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import model.Player;
+
+/**
+ * A fixed size message of the Communicator protocol. This class is immutable.
+ * 
+ * <pre>
+ * byte   type
+ * byte   flags
+ * int    sequence
+ * short  payload
+ * </pre>
+ * What the sequence and payload hold depends on the type:
+ * <pre>
+ * type      sequence                 payload
+ * MOVE      ply of the move          from square in bits 0-5, to square in bits 6-11
+ * START     game id                  ordinal of the Player the receiver plays
+ * REJECT    ply of the rejected move as MOVE
+ * JOIN      0                        0
+ * RESUME    game id                  ordinal of the Player in bit 15, ply the sender has reached in bits 0-14
+ * SYNC      ply the sender has reached 0
+ * SNAPSHOT  ply of the position      number of bytes that follow, holding the position in Forsyth-Edwards Notation as US-ASCII
+ * WATCH     game id                  0
+ * </pre>
+ * START and RESUME are followed by a long of {@code TOKEN_SIZE} bytes, the seat token. A GameServer picks a random token for each seat and sends it in START; a RESUME is only
+ * let into the seat if it carries the same token, so nobody can take over a seat by guessing the game id.
+ * 
+ * Squares are square indexes, {@code y * 8 + x}. Plies are counted through the game, so the first move of white is ply 1. Since a move's ply says where it belongs in the game,
+ * a repeated move can be recognized and ignored, and a side that has lost its connection can say exactly which moves it is missing.
+ */
+public final class Frame{
+	/**
+	 * the number of bytes in a frame.
+	 */
+	public static final int SIZE = 8;
+	
+	/**
+	 * the number of bytes of the seat token that follows START and RESUME.
+	 */
+	public static final int TOKEN_SIZE = 8;
+	
+	/**
+	 * a frame carrying a move.
+	 */
+	public static final byte MOVE = 1;
+	
+	/**
+	 * sent by a GameServer when a game begins, telling the receiver which side it plays. Followed by the receiver's seat token.
+	 */
+	public static final byte START = 2;
+	
+	/**
+	 * sent by a GameServer in answer to a MOVE that is not legal, or not the sender's to make. The move is not passed on.
+	 */
+	public static final byte REJECT = 3;
+	
+	/**
+	 * the first frame a client sends, asking a GameServer to pair it with an opponent. Ignored by a Communicator.
+	 */
+	public static final byte JOIN = 4;
+	
+	/**
+	 * sent instead of JOIN by a client returning to a game after losing its connection. The GameServer answers with the moves the client has missed, or a SNAPSHOT if it has
+	 * missed many, followed by a SYNC. Followed by the seat token the sender was given in START.
+	 */
+	public static final byte RESUME = 5;
+	
+	/**
+	 * ends a GameServer's answer to a RESUME, telling the client how far the game has got. A client that has made a move the server never received sends it again.
+	 */
+	public static final byte SYNC = 6;
+	
+	/**
+	 * carries a whole position, for a client too far behind to be sent the moves it has missed. Followed by the position itself. Sent with no position by a player whose
+	 * move was rejected, asking the GameServer for the position it has, which it answers with a SNAPSHOT and a SYNC.
+	 */
+	public static final byte SNAPSHOT = 7;
+	
+	/**
+	 * sent instead of JOIN by a client that wants to follow a game without playing, such as a Communicator opened with {@code Communicator.watch()}. The GameServer answers with a SNAPSHOT and a SYNC, then sends every move made.
+	 */
+	public static final byte WATCH = 8;
+	
+	/**
+	 * the flags of a frame that has none set. No flags are defined yet.
+	 */
+	public static final byte NONE = 0;
+	
+	private static final int SQUARE_MASK = 0x3F;
+	private static final int TO_SHIFT = 6;
+	private static final int PLAYER_SHIFT = 15;
+	private static final int PLY_MASK = 0x7FFF;
+	
+	private final byte type;
+	private final byte flags;
+	private final int sequence;
+	private final short payload;
+	
+	public Frame(byte type, byte flags, int sequence, short payload){
+		this.type = type;
+		this.flags = flags;
+		this.sequence = sequence;
+		this.payload = payload;
+	}
+	
+	/**
+	 * creates a MOVE frame.
+	 * @param packet the move
+	 * @return the frame
+	 */
+	public static Frame move(MovementPacket packet){
+		return move(MOVE, packet.getFrom().getIndex(), packet.getTo().getIndex(), packet.getPly());
+	}
+	
+	/**
+	 * creates a MOVE or REJECT frame from packed squares.
+	 * @param type MOVE or REJECT
+	 * @param from the square moved from
+	 * @param to the square moved to
+	 * @param ply the ply of the move
+	 * @return the frame
+	 */
+	public static Frame move(byte type, int from, int to, int ply){
+		return new Frame(type, NONE, ply, (short)(from | (to << TO_SHIFT)));
+	}
+	
+	/**
+	 * creates a RESUME frame.
+	 * @param game the id of the game, as sent in its START frame
+	 * @param player the side the sender plays
+	 * @param ply the ply the sender's position has reached
+	 * @return the frame
+	 */
+	public static Frame resume(int game, Player player, int ply){
+		if(ply < 0 || ply > PLY_MASK)throw new IllegalArgumentException("ply out of range: " + ply);
+		return new Frame(RESUME, NONE, game, (short)((player.ordinal() << PLAYER_SHIFT) | ply));
+	}
+	
+	/**
+	 * @return the side of the sender of a RESUME frame
+	 */
+	public Player getResumePlayer(){
+		return Player.values()[(payload >>> PLAYER_SHIFT) & 1];
+	}
+	
+	/**
+	 * @return the ply reached by the sender of a RESUME frame
+	 */
+	public int getResumePly(){
+		return payload & PLY_MASK;
+	}
+	
+	/**
+	 * @return the type of this frame
+	 */
+	public byte getType(){
+		return type;
+	}
+	
+	/**
+	 * @return the flags of this frame
+	 */
+	public byte getFlags(){
+		return flags;
+	}
+	
+	/**
+	 * @return the sequence of this frame. See the table above for its meaning.
+	 */
+	public int getSequence(){
+		return sequence;
+	}
+	
+	/**
+	 * @return the raw payload of this frame
+	 */
+	public short getPayload(){
+		return payload;
+	}
+	
+	/**
+	 * @return the square moved from by a MOVE or REJECT frame
+	 */
+	public int getFrom(){
+		return payload & SQUARE_MASK;
+	}
+	
+	/**
+	 * @return the square moved to by a MOVE or REJECT frame
+	 */
+	public int getTo(){
+		return (payload >>> TO_SHIFT) & SQUARE_MASK;
+	}
+	
+	/**
+	 * @return the move carried by a MOVE frame
+	 */
+	public MovementPacket getPacket(){
+		int from = getFrom();
+		int to = getTo();
+		return new MovementPacket(from % 8, from / 8, to % 8, to / 8, sequence);
+	}
+	
+	/**
+	 * writes this frame. The caller must flush the output.
+	 * @param out the output to write to
+	 * @throws IOException if an IOException occurs
+	 */
+	public void write(DataOutput out)throws IOException{
+		out.writeByte(type);
+		out.writeByte(flags);
+		out.writeInt(sequence);
+		out.writeShort(payload);
+	}
+	
+	/**
+	 * reads a frame.
+	 * @param in the input to read from
+	 * @return the frame read
+	 * @throws IOException if an IOException occurs
+	 */
+	public static Frame read(DataInput in)throws IOException{
+		byte type = in.readByte();
+		byte flags = in.readByte();
+		int sequence = in.readInt();
+		short payload = in.readShort();
+		return new Frame(type, flags, sequence, payload);
+	}
+	
+	/**
+	 * writes this frame into a buffer.
+	 * @param buffer the buffer to write to. Must have at least {@code SIZE} bytes remaining.
+	 */
+	public void write(ByteBuffer buffer){
+		buffer.put(type);
+		buffer.put(flags);
+		buffer.putInt(sequence);
+		buffer.putShort(payload);
+	}
+	
+	/**
+	 * encodes this frame into a buffer of its own, which can be handed to any number of connections.
+	 * @return a read-only buffer holding the frame, positioned at its start
+	 */
+	public ByteBuffer encode(){
+		ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		write(buffer);
+		buffer.flip();
+		return buffer.asReadOnlyBuffer();
+	}
+	
+	/**
+	 * reads a frame from a buffer.
+	 * @param buffer the buffer to read from. Must have at least {@code SIZE} bytes remaining.
+	 * @return the frame read
+	 */
+	public static Frame read(ByteBuffer buffer){
+		byte type = buffer.get();
+		byte flags = buffer.get();
+		int sequence = buffer.getInt();
+		short payload = buffer.getShort();
+		return new Frame(type, flags, sequence, payload);
+	}
+	
+	public String toString(){
+		return "frame " + sequence + " type " + type + " flags " + flags + " payload " + payload;
+	}
+}
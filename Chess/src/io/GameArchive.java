@@ -0,0 +1,105 @@
+package io;
+
+import java.nio.ByteBuffer;
+
+import model.BitBoard;
+import model.Board;
+import model.MoveHandler;
+import model.Player;
+
+/**
+ * The layout of a binary game archive, shared by GameArchiveWriter and GameArchiveReader. All numbers are big-endian.
+ * 
+ * <pre>
+ * header   int magic, int version, int game count, int reserved, long offset of the index
+ * games    one record per game, back to back
+ * index    long offset of each game's record, followed by the offset of the end of the last record
+ * </pre>
+ * 
+ * A game record is a start position followed by the moves. The start position is a single byte 0 for the standard starting position, or a byte 1 followed by the number of
+ * pieces, a byte square and byte piece index (see {@code BitBoard.index()}) for each piece, a byte for the side to move, a byte for the en passant square (-1 for none) and a
+ * long holding the set of pieces that have never moved. The moves are an unsigned short count followed by one byte per move: the move's index in the list produced by
+ * {@code MoveGenerator.generate()} for the position it is played from. The archive therefore depends on the order moves are generated in, which is part of the version.
+ */
+final class GameArchive{
+	static final int MAGIC = 0x43484741;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int COUNT_POSITION = 8;
+	static final int INDEX_POSITION = 16;
+	
+	static final byte STANDARD_START = 0;
+	static final byte CUSTOM_START = 1;
+	
+	/**
+	 * the most moves a single game may have.
+	 */
+	static final int MAX_PLIES = 0xFFFF;
+	/**
+	 * the largest a game record can be: a custom start with 32 pieces and the most moves.
+	 */
+	static final int MAX_RECORD_SIZE = 2 + 32 * 2 + 2 + 8 + 2 + MAX_PLIES;
+	
+	private static final BitBoard START = new MoveHandler(new Board(true)).copyPosition();
+	
+	private GameArchive(){}
+	
+	/**
+	 * @return a new copy of the standard starting position
+	 */
+	static BitBoard standardStart(){
+		return START.copy();
+	}
+	
+	/**
+	 * @return whether or not a position is the standard starting position
+	 */
+	static boolean isStandardStart(BitBoard position){
+		return position.samePosition(START) && position.getUnmoved() == START.getUnmoved();
+	}
+	
+	/**
+	 * writes a start position at the current position of a buffer.
+	 * @param buffer the buffer to write to
+	 * @param position the start position
+	 */
+	static void writeStart(ByteBuffer buffer, BitBoard position){
+		if(isStandardStart(position)){
+			buffer.put(STANDARD_START);
+			return;
+		}
+		buffer.put(CUSTOM_START);
+		long occupied = position.getOccupied();
+		buffer.put((byte)Long.bitCount(occupied));
+		for(; occupied != 0; occupied &= occupied - 1){
+			int square = Long.numberOfTrailingZeros(occupied);
+			buffer.put((byte)square);
+			buffer.put((byte)position.pieceAt(square));
+		}
+		buffer.put((byte)position.getTurn().ordinal());
+		buffer.put((byte)position.getEnPassant());
+		buffer.putLong(position.getUnmoved() & position.getOccupied());
+	}
+	
+	/**
+	 * reads a custom start position written at an absolute position in a buffer.
+	 * @param buffer the buffer holding the record
+	 * @param offset the position of the start position, just past its CUSTOM_START byte
+	 * @param position the position to fill in, which must be empty
+	 */
+	static void readStart(ByteBuffer buffer, int offset, BitBoard position){
+		int pieces = buffer.get(offset++);
+		for(int i = 0; i < pieces; i++){
+			int square = buffer.get(offset++);
+			int index = buffer.get(offset++);
+			position.put(square, BitBoard.typeOf(index), BitBoard.playerOf(index));
+		}
+		position.setTurn(Player.values()[buffer.get(offset++)]);
+		position.setEnPassant(buffer.get(offset++));
+		long unmoved = buffer.getLong(offset);
+		for(long occupied = position.getOccupied(); occupied != 0; occupied &= occupied - 1){
+			int square = Long.numberOfTrailingZeros(occupied);
+			position.setMoved(square, (unmoved & (1L << square)) == 0);
+		}
+	}
+}
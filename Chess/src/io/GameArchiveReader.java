@@ -0,0 +1,186 @@
+package io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import model.BitBoard;
+import model.GameState;
+import model.MoveGenerator;
+
+/**
+ * Reads games from a binary archive written by GameArchiveWriter. See GameArchive for the layout.
+ * 
+ * The archive is memory mapped, so finding game N is a lookup in the mapped index and reading it touches only the pages holding that game. The file is mapped in segments of
+ * at most 1 GB, each overlapping the next by the size of the largest possible game so that every game lies wholly within one segment. Reads use absolute positions only, so a
+ * reader may be shared between threads.
+ */
+public class GameArchiveReader implements Closeable{
+	private static final long SEGMENT_SIZE = 1L << 30;
+	
+	private FileChannel channel;
+	private MappedByteBuffer[] segments;
+	private LongBuffer index;
+	private int games;
+	
+	/**
+	 * opens an archive.
+	 * @param file the archive
+	 * @throws IOException if an IOException occurs or the file is not an archive
+	 */
+	public GameArchiveReader(File file)throws IOException{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try{
+			long size = channel.size();
+			if(size < GameArchive.HEADER_SIZE)throw new IOException(file + " is not a game archive");
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GameArchive.HEADER_SIZE);
+			if(header.getInt(0) != GameArchive.MAGIC)throw new IOException(file + " is not a game archive");
+			if(header.getInt(4) != GameArchive.VERSION)throw new IOException(file + " has unsupported archive version " + header.getInt(4));
+			games = header.getInt(GameArchive.COUNT_POSITION);
+			long indexPosition = header.getLong(GameArchive.INDEX_POSITION);
+			if(indexPosition + (games + 1) * 8L != size)throw new IOException(file + " is truncated");
+			
+			index = channel.map(FileChannel.MapMode.READ_ONLY, indexPosition, (games + 1) * 8L).asLongBuffer();
+			segments = new MappedByteBuffer[(int)((indexPosition + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for(int i = 0; i < segments.length; i++){
+				long start = i * SEGMENT_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + GameArchive.MAX_RECORD_SIZE, indexPosition - start));
+			}
+		}catch(IOException | RuntimeException ex){
+			channel.close();
+			throw ex;
+		}
+	}
+	
+	/**
+	 * @return the number of games in the archive
+	 */
+	public int getGameCount(){
+		return games;
+	}
+	
+	/**
+	 * @param game the number of a game, starting from 0
+	 * @return the number of moves in the game
+	 */
+	public int getPlyCount(int game){
+		ByteBuffer segment = segment(game);
+		return segment.getShort(skipStart(segment, offset(game))) & 0xFFFF;
+	}
+	
+	/**
+	 * @param game the number of a game, starting from 0
+	 * @return a new copy of the position the game starts from
+	 */
+	public BitBoard getStartPosition(int game){
+		ByteBuffer segment = segment(game);
+		return readStart(segment, offset(game));
+	}
+	
+	/**
+	 * decodes the moves of a game.
+	 * @param game the number of a game, starting from 0
+	 * @return the game's moves, as packed moves (see {@code model.PackedMove})
+	 */
+	public int[] getMoves(int game){
+		int[] moves = new int[getPlyCount(game)];
+		replay(game, moves.length, moves, null);
+		return moves;
+	}
+	
+	/**
+	 * gets the position of a game after a number of moves.
+	 * @param game the number of a game, starting from 0
+	 * @param ply the number of moves to play, at most {@code getPlyCount(game)}
+	 * @return a new position
+	 */
+	public BitBoard getPosition(int game, int ply){
+		if(ply < 0 || ply > getPlyCount(game))throw new IllegalArgumentException("Game " + game + " has " + getPlyCount(game) + " moves, cannot go to move " + ply);
+		return replay(game, ply, null, null);
+	}
+	
+	/**
+	 * streams a game to a listener as {@code ChessReader.readGames()} would.
+	 * @param game the number of a game, starting from 0
+	 * @param listener the listener to receive the game's events
+	 */
+	public void replay(int game, GameListener listener){
+		listener.gameStarted(game);
+		BitBoard position = replay(game, getPlyCount(game), null, listener);
+		
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(position, legal);
+		int king = position.getKingSquare(position.getTurn());
+		boolean threatened = king != BitBoard.NONE && position.isAttacked(king, position.getTurn().getOpponent());
+		GameState state = (count == 0) ? ((threatened) ? GameState.checkmate : GameState.stalemate) : (threatened) ? GameState.check : GameState.ingame;
+		listener.gameEnded(game, position, state, true);
+	}
+	
+	/**
+	 * plays the first moves of a game.
+	 * @param moves if not null, receives the moves played
+	 * @param listener if not null, is told of every move played
+	 * @return the position reached
+	 */
+	private BitBoard replay(int game, int plies, int[] moves, GameListener listener){
+		ByteBuffer segment = segment(game);
+		int offset = offset(game);
+		BitBoard position = readStart(segment, offset);
+		offset = skipStart(segment, offset) + 2;
+		
+		int[] legal = new int[MoveGenerator.MAX_MOVES];
+		for(int i = 0; i < plies; i++){
+			int count = MoveGenerator.generate(position, legal);
+			int choice = segment.get(offset + i) & 0xFF;
+			if(choice >= count)throw new IllegalStateException("Game " + game + " is corrupt at move " + i);
+			int move = legal[choice];
+			if(moves != null)moves[i] = move;
+			if(listener != null)listener.moveRead(game, position, move);
+			position.make(move);
+		}
+		return position;
+	}
+	
+	/**
+	 * @return the segment holding a game
+	 */
+	private ByteBuffer segment(int game){
+		if(game < 0 || game >= games)throw new IndexOutOfBoundsException("Game " + game + " is not in the archive of " + games + " games");
+		return segments[(int)(index.get(game) / SEGMENT_SIZE)];
+	}
+	
+	/**
+	 * @return the position of a game's record within its segment
+	 */
+	private int offset(int game){
+		return (int)(index.get(game) % SEGMENT_SIZE);
+	}
+	
+	/**
+	 * reads the start position of the record at offset.
+	 */
+	private static BitBoard readStart(ByteBuffer segment, int offset){
+		if(segment.get(offset) == GameArchive.STANDARD_START)return GameArchive.standardStart();
+		BitBoard position = new BitBoard();
+		GameArchive.readStart(segment, offset + 1, position);
+		return position;
+	}
+	
+	/**
+	 * @return the position just past the start position of the record at offset
+	 */
+	private static int skipStart(ByteBuffer segment, int offset){
+		if(segment.get(offset) == GameArchive.STANDARD_START)return offset + 1;
+		return offset + 2 + segment.get(offset + 1) * 2 + 2 + 8;
+	}
+	
+	@Override
+	public void close()throws IOException{
+		channel.close();
+	}
+}
@@ -0,0 +1,168 @@
+package io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import model.BitBoard;
+import model.GameState;
+import model.MoveGenerator;
+
+/**
+ * Writes games to a binary archive, one byte per move. See GameArchive for the layout. Games are written as they are given and the index of game offsets is written when the
+ * writer is closed, so an archive is not readable until then.
+ */
+public class GameArchiveWriter implements Closeable{
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE + GameArchive.MAX_RECORD_SIZE);
+	private long[] offsets = new long[1024];
+	private int games = 0;
+	private long position = GameArchive.HEADER_SIZE;
+	private int[] legal = new int[MoveGenerator.MAX_MOVES];
+	
+	/**
+	 * creates an archive, replacing any file already there.
+	 * @param file the file to write to
+	 * @throws IOException if an IOException occurs
+	 */
+	public GameArchiveWriter(File file)throws IOException{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		channel.position(GameArchive.HEADER_SIZE);
+	}
+	
+	/**
+	 * writes a game.
+	 * @param start the position the game starts from. It is not modified.
+	 * @param moves the game's moves, as packed moves (see {@code model.PackedMove})
+	 * @param count the number of moves
+	 * @throws IllegalArgumentException if a move is not legal or there are more than 65535 moves
+	 * @throws IOException if an IOException occurs
+	 */
+	public void writeGame(BitBoard start, int[] moves, int count)throws IOException{
+		if(count > GameArchive.MAX_PLIES)throw new IllegalArgumentException("A game can have at most " + GameArchive.MAX_PLIES + " moves: " + count);
+		if(buffer.position() >= BUFFER_SIZE)flush();
+		int begin = buffer.position();
+		
+		GameArchive.writeStart(buffer, start);
+		buffer.putShort((short)count);
+		BitBoard board = start.copy();
+		for(int i = 0; i < count; i++){
+			int n = MoveGenerator.generate(board, legal);
+			int index = 0;
+			while(index < n && legal[index] != moves[i])index++;
+			if(index == n){
+				buffer.position(begin);
+				throw new IllegalArgumentException("Move " + i + " is not legal");
+			}
+			buffer.put((byte)index);
+			board.make(moves[i]);
+		}
+		
+		if(games + 1 >= offsets.length)offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		offsets[games++] = position;
+		position += buffer.position() - begin;
+	}
+	
+	/**
+	 * @return the number of games written so far
+	 */
+	public int getGameCount(){
+		return games;
+	}
+	
+	/**
+	 * writes the buffered records to the file.
+	 */
+	private void flush()throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining()){
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * writes the index and header and closes the file.
+	 */
+	@Override
+	public void close()throws IOException{
+		if(channel == null)return;
+		try{
+			flush();
+			offsets[games] = position;
+			ByteBuffer index = ByteBuffer.allocate((games + 1) * 8);
+			index.asLongBuffer().put(offsets, 0, games + 1);
+			while(index.hasRemaining()){
+				channel.write(index);
+			}
+			
+			ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+			header.putInt(GameArchive.MAGIC).putInt(GameArchive.VERSION).putInt(games).putInt(0).putLong(position);
+			header.flip();
+			while(header.hasRemaining()){
+				channel.write(header, header.position());
+			}
+		}finally{
+			channel.close();
+			channel = null;
+		}
+	}
+	
+	/**
+	 * converts text game files, as read by {@code ChessReader.readGames()}, into an archive. Invalid games are reported and left out.
+	 * @param args the archive to write followed by the files to read
+	 */
+	public static void main(String[] args){
+		if(args.length < 2)throw new IllegalArgumentException("Usage: GameArchiveWriter archive file...");
+		try(final GameArchiveWriter out = new GameArchiveWriter(new File(args[0]))){
+			for(int i = 1; i < args.length; i++){
+				final String file = args[i];
+				try(ChessReader in = new ChessReader(new FileReader(file))){
+					in.readGames(new GameListener(){
+						private BitBoard start;
+						private int[] moves = new int[256];
+						private int count;
+						
+						@Override
+						public void gameStarted(int game){
+							start = null;
+							count = 0;
+						}
+						
+						@Override
+						public void moveRead(int game, BitBoard position, int move){
+							if(start == null)start = position.copy();
+							if(count == moves.length)moves = Arrays.copyOf(moves, count * 2);
+							moves[count++] = move;
+						}
+						
+						@Override
+						public void error(int game, int line, String text, String reason){
+							System.err.println(file + ":" + line + ": " + reason + " \"" + text + "\"");
+						}
+						
+						@Override
+						public void gameEnded(int game, BitBoard position, GameState state, boolean valid){
+							if(!valid)return;
+							try{
+								out.writeGame((start == null) ? position : start, moves, count);
+							}catch(IOException ex){
+								throw new IllegalStateException(ex);
+							}
+						}
+					});
+				}
+			}
+			System.out.println(out.getGameCount() + " games written to " + args[0]);
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package io;
+
+import model.BitBoard;
+import model.GameState;
+
+/**
+ * receives the events of games streamed by {@code ChessReader.readGames()}. Events arrive in file order: a game is started, each of its moves is reported along with the position it
+ * is played from, and the game is ended.
+ * 
+ * The positions passed to a listener are live and are changed as soon as the listener returns. A listener must not modify them, and should {@code copy()} any position it wants
+ * to keep.
+ */
+public interface GameListener{
+	/**
+	 * invoked before the first command of a game is processed.
+	 * @param game the number of the game in the file, starting from 0
+	 */
+	public void gameStarted(int game);
+	
+	/**
+	 * invoked for every legal move, before it is made.
+	 * @param game the number of the game
+	 * @param position the position the move is played from
+	 * @param move the move, as a packed move (see {@code model.PackedMove})
+	 */
+	public void moveRead(int game, BitBoard position, int move);
+	
+	/**
+	 * invoked for every line that cannot be processed. Once a move in a game fails, the rest of the game's moves are skipped.
+	 * @param game the number of the game
+	 * @param line the line number in the file, starting from 1
+	 * @param text the text of the line
+	 * @param reason why the line could not be processed
+	 */
+	public void error(int game, int line, String text, String reason);
+	
+	/**
+	 * invoked after the last command of a game has been processed.
+	 * @param game the number of the game
+	 * @param position the final position of the game
+	 * @param state the state of the final position for the player to move
+	 * @param valid whether or not every line of the game was processed
+	 */
+	public void gameEnded(int game, BitBoard position, GameState state, boolean valid);
+}
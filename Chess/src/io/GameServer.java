@@ -0,0 +1,559 @@
+package io;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import model.Board;
+import model.MoveGenerator;
+import model.MoveHandler;
+import model.PackedMove;
+import model.Player;
+
+/**
+ * A headless server that hosts many games at once. Clients speak the same Protocol as a Communicator: clients that send JOIN are paired in the order they join, the first
+ * of each pair playing white. Each side is then sent a START frame with the game's id, and every MOVE it sends is checked against the game's own MoveHandler. Legal moves are
+ * passed on to the opponent; anything else is answered with a REJECT frame, after which the client asks for a SNAPSHOT to get back in step. A move whose ply has already been
+ * played is taken to be a repeat and ignored.
+ * 
+ * Any number of clients may send WATCH to follow a game. A watcher is sent a SNAPSHOT of the position and then every move as it is made. Each frame sent to more than one
+ * connection is encoded once into a read-only buffer; connections queue views of that buffer rather than copies, and write their queues with one gathering write.
+ * 
+ * A side that disconnects keeps its seat for a while. Moves made meanwhile are kept, and a client that comes back with RESUME is sent only the moves it is missing, or a
+ * SNAPSHOT of the position if it is missing more than a few. A client is only let back into a seat if it sends the random token it was given for that seat in START; a
+ * connection sending any other token is closed. A game is ended, and the other side disconnected, once a seat has been empty too long.
+ * 
+ * Every connection is non-blocking and served by one thread waiting on a Selector, so the number of games is not limited by the number of threads. All games are only ever
+ * touched by that thread, so no locking is needed.
+ */
+public class GameServer implements Runnable{
+	/**
+	 * the number of frames that may wait to be sent to a connection, and be read from it. A client that falls further behind than this is disconnected.
+	 */
+	private static final int BUFFERED_FRAMES = 64;
+	/**
+	 * the hello sent to every connection.
+	 */
+	private static final ByteBuffer HELLO;
+	static{
+		ByteBuffer hello = ByteBuffer.allocate(Protocol.HELLO_SIZE);
+		Protocol.writeHello(hello);
+		hello.flip();
+		HELLO = hello.asReadOnlyBuffer();
+	}
+	/**
+	 * the most missed moves sent to a resuming client. A SNAPSHOT takes about as many bytes as this many MOVE frames.
+	 */
+	private static final int RESYNC_LIMIT = 8;
+	/**
+	 * how long an empty seat is kept unless another time is chosen, in milliseconds.
+	 */
+	public static final long DEFAULT_RESUME_MILLIS = 60000;
+	/**
+	 * how often empty seats are checked, in milliseconds.
+	 */
+	private static final long SWEEP_MILLIS = 1000;
+	
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+	private final Map<Integer, Game> games = new HashMap<Integer, Game>();
+	private final long resumeMillis;
+	private final SecureRandom random = new SecureRandom();
+	private int nextGameId = 0;
+	private Connection waiting;
+	private volatile boolean kill = false;
+	
+	/**
+	 * creates a server listening on a port. Nothing is accepted until {@code run()} is called.
+	 * @param port the port to listen on, 0 for any free port
+	 * @throws IOException if an IOException occurs
+	 */
+	public GameServer(int port)throws IOException{
+		this(port, DEFAULT_RESUME_MILLIS);
+	}
+	
+	/**
+	 * creates a server listening on a port. Nothing is accepted until {@code run()} is called.
+	 * @param port the port to listen on, 0 for any free port
+	 * @param resumeMillis how long a disconnected side's seat is kept, in milliseconds
+	 * @throws IOException if an IOException occurs
+	 */
+	public GameServer(int port, long resumeMillis)throws IOException{
+		this.resumeMillis = resumeMillis;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(port), 1024);
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+	
+	/**
+	 * @return the port this server listens on
+	 */
+	public int getPort(){
+		return server.socket().getLocalPort();
+	}
+	
+	/**
+	 * @return the number of games in progress. Only accurate when called from the server's thread, or after it has stopped.
+	 */
+	public int getGameCount(){
+		return games.size();
+	}
+	
+	/**
+	 * serves connections until killed, then closes every connection.
+	 */
+	public void run(){
+		try{
+			long lastSweep = System.currentTimeMillis();
+			while(!kill){
+				selector.select(SWEEP_MILLIS);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					if(!key.isValid())continue;
+					if(key.isAcceptable()){
+						accept();
+						continue;
+					}
+					Connection connection = (Connection)key.attachment();
+					try{
+						if(key.isReadable())connection.read();
+						if(key.isValid() && key.isWritable())connection.flush();
+					}catch(IOException ex){
+						close(connection);
+					}
+				}
+				long now = System.currentTimeMillis();
+				if(now - lastSweep >= SWEEP_MILLIS){
+					sweep(now);
+					lastSweep = now;
+				}
+			}
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}finally{
+			for(SelectionKey key : selector.keys()){
+				try{
+					key.channel().close();
+				}catch(IOException ex){
+					ex.printStackTrace();
+				}
+			}
+			try{
+				selector.close();
+			}catch(IOException ex){
+				ex.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * stops the server. May be called from any thread.
+	 */
+	public void kill(){
+		kill = true;
+		selector.wakeup();
+	}
+	
+	/**
+	 * accepts every pending connection and sends each a hello.
+	 */
+	private void accept(){
+		try{
+			SocketChannel channel;
+			while((channel = server.accept()) != null){
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				Connection connection = new Connection(channel);
+				connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+				connection.send(HELLO);
+			}
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}
+	}
+	
+	/**
+	 * starts a game for a connection that has sent JOIN, or leaves it waiting for an opponent.
+	 * @param connection the connection
+	 */
+	private void pair(Connection connection){
+		if(waiting == null){
+			waiting = connection;
+			return;
+		}
+		Connection white = waiting;
+		waiting = null;
+		new Game(white, connection);
+	}
+	
+	/**
+	 * seats a connection that has sent RESUME back in its game. A connection already in the seat, which may not yet know it has been cut off, is closed. If there is no such
+	 * game, or the token is not the seat's, the connection is closed.
+	 * @param connection the connection
+	 * @param frame the RESUME frame
+	 * @param token the seat token sent after the frame
+	 */
+	private void resume(Connection connection, Frame frame, long token){
+		Game game = games.get(frame.getSequence());
+		Player player = frame.getResumePlayer();
+		if(game == null || token != game.tokens[player.ordinal()]){
+			close(connection);
+			return;
+		}
+		Connection old = game.players[player.ordinal()];
+		if(old != null){
+			//taken out of its seat first, so that closing it does not count as leaving
+			old.game = null;
+			close(old);
+		}
+		game.resume(connection, player, frame.getResumePly());
+	}
+	
+	/**
+	 * adds a connection that has sent WATCH to the watchers of its game. If there is no such game the connection is closed.
+	 * @param connection the connection
+	 * @param frame the WATCH frame
+	 */
+	private void watch(Connection connection, Frame frame){
+		Game game = games.get(frame.getSequence());
+		if(game == null){
+			close(connection);
+			return;
+		}
+		game.watchers.add(connection);
+		connection.watching = game;
+		connection.send(game.snapshot());
+	}
+	
+	/**
+	 * closes a connection. If it is in a game, its seat is kept for it until the game is swept.
+	 * @param connection the connection to close
+	 */
+	private void close(Connection connection){
+		if(connection == waiting)waiting = null;
+		connection.key.cancel();
+		try{
+			connection.channel.close();
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}
+		if(connection.game != null)connection.game.leave(connection);
+		if(connection.watching != null){
+			connection.watching.watchers.remove(connection);
+			connection.watching = null;
+		}
+	}
+	
+	/**
+	 * ends every game that has had an empty seat for too long, closing the other side's connection.
+	 * @param now the current time in milliseconds
+	 */
+	private void sweep(long now){
+		List<Game> expired = new ArrayList<Game>();
+		for(Game game : games.values()){
+			if(game.vacated >= 0 && now - game.vacated >= resumeMillis)expired.add(game);
+		}
+		for(Game game : expired){
+			game.end();
+		}
+	}
+	
+	/**
+	 * one client's connection with its buffers.
+	 */
+	private class Connection{
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private final ByteBuffer in = ByteBuffer.allocate(Frame.SIZE * BUFFERED_FRAMES);
+		//views of buffers that may be shared with other connections
+		private final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>();
+		private boolean hello = false;
+		private boolean joined = false;
+		private Game game;
+		private Player player;
+		private Game watching;
+		
+		private Connection(SocketChannel channel){
+			this.channel = channel;
+		}
+		
+		/**
+		 * reads whatever has arrived and handles every complete frame.
+		 * @throws IOException if an IOException occurs or the client has disconnected
+		 */
+		private void read()throws IOException{
+			if(channel.read(in) < 0)throw new IOException("disconnected");
+			in.flip();
+			try{
+				if(!hello){
+					if(in.remaining() < Protocol.HELLO_SIZE)return;
+					Protocol.readHello(in);
+					hello = true;
+				}
+				while(in.remaining() >= Frame.SIZE && channel.isOpen()){
+					boolean resume = in.get(in.position()) == Frame.RESUME;
+					if(resume && in.remaining() < Frame.SIZE + Frame.TOKEN_SIZE)break;
+					Frame frame = Frame.read(in);
+					receive(frame, (resume) ? in.getLong() : 0);
+				}
+			}finally{
+				in.compact();
+			}
+		}
+		
+		/**
+		 * handles a frame sent by the client.
+		 * @param frame the frame
+		 * @param token the seat token following a RESUME frame, 0 for any other frame
+		 */
+		private void receive(Frame frame, long token){
+			if(game != null){
+				if(frame.getType() == Frame.MOVE){
+					game.move(this, frame);
+				}else if(frame.getType() == Frame.SNAPSHOT){
+					send(game.snapshot());
+				}
+				return;
+			}
+			if(joined)return;
+			if(frame.getType() == Frame.JOIN){
+				joined = true;
+				pair(this);
+			}else if(frame.getType() == Frame.RESUME){
+				joined = true;
+				resume(this, frame, token);
+			}else if(frame.getType() == Frame.WATCH){
+				joined = true;
+				watch(this, frame);
+			}
+		}
+		
+		/**
+		 * queues a frame to be sent to the client, as {@code send(ByteBuffer)}.
+		 * @param frame the frame
+		 */
+		private void send(Frame frame){
+			send(frame.encode());
+		}
+		
+		/**
+		 * queues encoded data to be sent to the client and sends as much as the socket will take. If the client has fallen too far behind, it is disconnected instead.
+		 * @param data the data, from its position to its limit. Only a view of it is kept, so it may be shared but must not be changed.
+		 */
+		private void send(ByteBuffer data){
+			if(!channel.isOpen())return;
+			if(out.size() >= BUFFERED_FRAMES){
+				close(this);
+				return;
+			}
+			out.add(data.duplicate());
+			try{
+				flush();
+			}catch(IOException ex){
+				close(this);
+			}
+		}
+		
+		/**
+		 * writes as much of the queued output as the socket will take, and asks to be told when it will take more if anything is left.
+		 * @throws IOException if an IOException occurs
+		 */
+		private void flush()throws IOException{
+			if(out.size() == 1){
+				channel.write(out.peek());
+			}else if(!out.isEmpty()){
+				channel.write(out.toArray(new ByteBuffer[out.size()]));
+			}
+			while(!out.isEmpty() && !out.peek().hasRemaining()){
+				out.poll();
+			}
+			key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		}
+	}
+	
+	/**
+	 * a game between two connections, and the connections watching it.
+	 */
+	private class Game{
+		private final int id = nextGameId++;
+		private final MoveHandler model = new MoveHandler(new Board(true));
+		private final Connection[] players = new Connection[2];
+		private final long[] tokens = {random.nextLong(), random.nextLong()};
+		private final List<Connection> watchers = new ArrayList<Connection>();
+		//the encoded SNAPSHOT and SYNC of the current position, shared by everyone who asks for it before the next move; null until asked for
+		private ByteBuffer snapshot;
+		//the payload of the MOVE frame of every ply, so that missed moves can be sent again
+		private short[] log = new short[64];
+		//when a seat became empty, -1 while both are filled
+		private long vacated = -1;
+		
+		private Game(Connection white, Connection black){
+			model.setVerbose(false);
+			model.forceUpdate();
+			games.put(id, this);
+			seat(white, Player.white);
+			seat(black, Player.black);
+			white.send(start(Player.white));
+			black.send(start(Player.black));
+		}
+		
+		/**
+		 * @param player a side
+		 * @return a buffer holding the START frame for the side followed by its seat token
+		 */
+		private ByteBuffer start(Player player){
+			ByteBuffer buffer = ByteBuffer.allocate(Frame.SIZE + Frame.TOKEN_SIZE);
+			new Frame(Frame.START, Frame.NONE, id, (short)player.ordinal()).write(buffer);
+			buffer.putLong(tokens[player.ordinal()]);
+			buffer.flip();
+			return buffer;
+		}
+		
+		private void seat(Connection connection, Player player){
+			players[player.ordinal()] = connection;
+			connection.game = this;
+			connection.player = player;
+			if(players[0] != null && players[1] != null)vacated = -1;
+		}
+		
+		/**
+		 * empties a connection's seat. The game is ended at once if both seats are empty.
+		 * @param connection the connection leaving
+		 */
+		private void leave(Connection connection){
+			players[connection.player.ordinal()] = null;
+			connection.game = null;
+			if(players[0] == null && players[1] == null){
+				end();
+			}else if(vacated < 0){
+				vacated = System.currentTimeMillis();
+			}
+		}
+		
+		/**
+		 * seats a returning connection and brings it up to date: the moves after the ply it has reached, or a snapshot if it is missing too many or claims to be further on
+		 * than it can be, then a SYNC.
+		 * @param connection the connection
+		 * @param player the side it plays
+		 * @param reached the ply the client has reached
+		 */
+		private void resume(Connection connection, Player player, int reached){
+			seat(connection, player);
+			int ply = model.getPly();
+			if(reached < ply - RESYNC_LIMIT || reached > ply + 1){
+				connection.send(snapshot());
+				return;
+			}
+			for(int i = reached + 1; i <= ply; i++){
+				connection.send(new Frame(Frame.MOVE, Frame.NONE, i, log[i - 1]));
+			}
+			connection.send(new Frame(Frame.SYNC, Frame.NONE, ply, (short)0));
+		}
+		
+		/**
+		 * @return a read-only buffer holding a SNAPSHOT of the current position followed by a SYNC
+		 */
+		private ByteBuffer snapshot(){
+			if(snapshot == null){
+				int ply = model.getPly();
+				byte[] fen = model.toFen().getBytes(StandardCharsets.US_ASCII);
+				ByteBuffer buffer = ByteBuffer.allocate(Frame.SIZE * 2 + fen.length);
+				new Frame(Frame.SNAPSHOT, Frame.NONE, ply, (short)fen.length).write(buffer);
+				buffer.put(fen);
+				new Frame(Frame.SYNC, Frame.NONE, ply, (short)0).write(buffer);
+				buffer.flip();
+				snapshot = buffer.asReadOnlyBuffer();
+			}
+			return snapshot;
+		}
+		
+		/**
+		 * ends the game, closing the connections of both sides and every watcher.
+		 */
+		private void end(){
+			games.remove(id);
+			for(Connection connection : players){
+				if(connection != null){
+					connection.game = null;
+					close(connection);
+				}
+			}
+			for(Connection watcher : watchers){
+				watcher.watching = null;
+				close(watcher);
+			}
+			watchers.clear();
+		}
+		
+		/**
+		 * makes a move sent by one of the players if it is legal and theirs to make, and passes it on to the opponent. Otherwise the move is rejected.
+		 * @param connection the player
+		 * @param frame the MOVE frame
+		 */
+		private void move(Connection connection, Frame frame){
+			int ply = model.getPly();
+			if(frame.getSequence() <= ply)return;
+			int from = frame.getFrom();
+			int to = frame.getTo();
+			int move = PackedMove.NONE;
+			if(connection.player == model.getTurn() && frame.getSequence() == ply + 1){
+				int count = model.getLegalMoves(moves);
+				for(int i = 0; i < count; i++){
+					if(PackedMove.getFrom(moves[i]) == from && PackedMove.getTo(moves[i]) == to){
+						move = moves[i];
+						break;
+					}
+				}
+			}
+			if(move == PackedMove.NONE){
+				connection.send(Frame.move(Frame.REJECT, from, to, frame.getSequence()));
+				return;
+			}
+			model.makeMove(model.getMove(move));
+			snapshot = null;
+			if(ply == log.length)log = Arrays.copyOf(log, ply * 2);
+			log[ply] = frame.getPayload();
+			
+			ByteBuffer encoded = Frame.move(Frame.MOVE, from, to, ply + 1).encode();
+			Connection opponent = players[connection.player.getOpponent().ordinal()];
+			if(opponent != null)opponent.send(encoded);
+			//backwards, since a watcher that has fallen behind is closed and removed
+			for(int i = watchers.size() - 1; i >= 0; i--){
+				watchers.get(i).send(encoded);
+			}
+		}
+	}
+	
+	/**
+	 * runs a server until the process is stopped.
+	 * @param args optionally, the port to listen on
+	 */
+	public static void main(String[] args){
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : Protocol.PORT;
+		try{
+			GameServer server = new GameServer(port);
+			System.out.println("Listening on port " + server.getPort());
+			server.run();
+		}catch(IOException ex){
+			ex.printStackTrace();
+		}
+	}
+}
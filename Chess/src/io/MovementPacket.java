@@ -1,24 +1,30 @@
 package io;
 
-import java.io.Serializable;
-
 import model.Location;
 
 /**
- * represents a movement that has been made. Is used to transfer information of the network
+ * represents a movement that has been made. Is sent over the network in a Frame
  * @author kstimson
  *
  */
-public class MovementPacket implements Serializable{
-	private static final long serialVersionUID = 1L;
+public class MovementPacket{
 	private int fromX, toX;
 	private int fromY, toY;
+	private int ply;
 	
-	public MovementPacket(int fromX, int fromY, int toX, int toY){
+	/**
+	 * @param fromX the column moved from
+	 * @param fromY the row moved from
+	 * @param toX the column moved to
+	 * @param toY the row moved to
+	 * @param ply the ply of the move in its game, 1 for the first move of white
+	 */
+	public MovementPacket(int fromX, int fromY, int toX, int toY, int ply){
 		this.fromX = fromX;
 		this.fromY = fromY;
 		this.toX = toX;
 		this.toY = toY;
+		this.ply = ply;
 	}
 	
 	/**
@@ -37,6 +43,13 @@ public class MovementPacket implements Serializable{
 		return Location.valueOf(toX, toY);
 	}
 	
+	/**
+	 * @return the ply of the move in its game, 1 for the first move of white
+	 */
+	public int getPly(){
+		return ply;
+	}
+	
 	/**
 	 * returns a string representation of this move
 	 */
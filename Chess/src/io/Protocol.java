@@ -0,0 +1,94 @@
+package io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol spoken between two Communicators. All numbers are big-endian, as written by DataOutputStream.
+ * 
+ * On connecting, each side sends a hello of six bytes: the int MAGIC and a short holding the newest protocol version it speaks. The hello is a version check, not a
+ * negotiation: MIN_VERSION and VERSION are both 3 and nothing older is decoded any more, so both sides speak version 3 and a connection is refused if the magic is wrong
+ * or the other side's newest version is older than that.
+ * 
+ * After the hello, everything sent is a Frame of {@code Frame.SIZE} bytes, except for the position following a SNAPSHOT frame and the seat token following START and RESUME.
+ * A client's first frame is JOIN, RESUME or WATCH.
+ * 
+ * Version 2 numbers MOVE frames by ply rather than by connection, which version 1 did, so the two cannot be mixed. Version 3 adds the seat token, without which a GameServer
+ * does not let a client back into its seat.
+ */
+public final class Protocol{
+	public static final int MAGIC = 0x43485353;
+	/**
+	 * the oldest version this program can speak.
+	 */
+	public static final int MIN_VERSION = 3;
+	/**
+	 * the newest version this program can speak.
+	 */
+	public static final int VERSION = 3;
+	/**
+	 * the number of bytes in a hello.
+	 */
+	public static final int HELLO_SIZE = 6;
+	/**
+	 * the port games are played on unless another is chosen.
+	 */
+	public static final int PORT = 1234;
+	
+	private Protocol(){}
+	
+	/**
+	 * sends a hello. The caller must flush the output.
+	 * @param out the output to write to
+	 * @throws IOException if an IOException occurs
+	 */
+	public static void writeHello(DataOutput out)throws IOException{
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+	}
+	
+	/**
+	 * reads the other side's hello and checks its version.
+	 * @param in the input to read from
+	 * @return the version both sides will speak, always VERSION
+	 * @throws IOException if an IOException occurs, or the other side does not speak this protocol or a version of it this program can speak
+	 */
+	public static int readHello(DataInput in)throws IOException{
+		int magic = in.readInt();
+		return agree(magic, in.readUnsignedShort());
+	}
+	
+	/**
+	 * sends a hello into a buffer.
+	 * @param buffer the buffer to write to. Must have at least {@code HELLO_SIZE} bytes remaining.
+	 */
+	public static void writeHello(ByteBuffer buffer){
+		buffer.putInt(MAGIC);
+		buffer.putShort((short)VERSION);
+	}
+	
+	/**
+	 * reads the other side's hello from a buffer and checks its version.
+	 * @param buffer the buffer to read from. Must have at least {@code HELLO_SIZE} bytes remaining.
+	 * @return the version both sides will speak, always VERSION
+	 * @throws IOException if the other side does not speak this protocol or a version of it this program can speak
+	 */
+	public static int readHello(ByteBuffer buffer)throws IOException{
+		int magic = buffer.getInt();
+		return agree(magic, buffer.getShort() & 0xFFFF);
+	}
+	
+	/**
+	 * checks the contents of a hello.
+	 * @return the version both sides will speak, always VERSION
+	 * @throws IOException if the hello is not acceptable
+	 */
+	private static int agree(int magic, int theirs)throws IOException{
+		if(magic != MAGIC)throw new IOException("The other side does not speak this protocol (magic " + Integer.toHexString(magic) + ")");
+		int version = Math.min(theirs, VERSION);
+		if(version < MIN_VERSION)throw new IOException("No common protocol version. The other side speaks at most " + version + ", this program at least " + MIN_VERSION);
+		return version;
+	}
+}
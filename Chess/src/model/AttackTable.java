@@ -0,0 +1,126 @@
+package model;
+
+/**
+ * Keeps track of how many pieces of each player attack every square. The table is updated incrementally as pieces are placed and removed: only the piece that changed and
+ * the sliding pieces whose rays pass through its square are recalculated, so asking whether a square is threatened never requires rebuilding a threat map.
+ * 
+ * Owned and kept up to date by a BitBoard. All squares are square indexes.
+ */
+final class AttackTable{
+	private byte[] counts = new byte[Player.values().length * BitBoard.SQUARES];
+	private long[] attacked = new long[Player.values().length];
+	private long[] attacksFrom = new long[BitBoard.SQUARES];
+	
+	AttackTable(){}
+	
+	/**
+	 * Copy constructor.
+	 * @param other the table to copy
+	 */
+	private AttackTable(AttackTable other){
+		counts = other.counts.clone();
+		attacked = other.attacked.clone();
+		attacksFrom = other.attacksFrom.clone();
+	}
+	
+	/**
+	 * @return an independent copy of this table
+	 */
+	AttackTable copy(){
+		return new AttackTable(this);
+	}
+	
+	/**
+	 * @param square the square to look at
+	 * @param player the attacking player
+	 * @return whether or not at least one of the player's pieces attacks the square
+	 */
+	boolean isAttacked(int square, Player player){
+		return (attacked[player.ordinal()] & (1L << square)) != 0;
+	}
+	
+	/**
+	 * @param square the square to look at
+	 * @param player the attacking player
+	 * @return how many of the player's pieces attack the square
+	 */
+	int getAttackCount(int square, Player player){
+		return counts[player.ordinal() * BitBoard.SQUARES + square];
+	}
+	
+	/**
+	 * @param player the attacking player
+	 * @return the set of squares attacked by at least one of the player's pieces
+	 */
+	long getAttacked(Player player){
+		return attacked[player.ordinal()];
+	}
+	
+	/**
+	 * adds the attacks of a piece that was just placed. Must be called after the bitboard has been updated.
+	 * @param board the bitboard that owns this table
+	 * @param square the square the piece was placed on
+	 * @param index the index of the piece
+	 */
+	void added(BitBoard board, int square, int index){
+		long occupied = board.getOccupied();
+		refreshSliders(board, square, occupied);
+		attacksFrom[square] = Attacks.of(BitBoard.typeOf(index), BitBoard.playerOf(index), square, occupied);
+		apply(attacksFrom[square], BitBoard.playerOf(index), 1);
+	}
+	
+	/**
+	 * removes the attacks of a piece that was just removed. Must be called after the bitboard has been updated.
+	 * @param board the bitboard that owns this table
+	 * @param square the square the piece was removed from
+	 * @param index the index of the piece
+	 */
+	void removed(BitBoard board, int square, int index){
+		apply(attacksFrom[square], BitBoard.playerOf(index), -1);
+		attacksFrom[square] = 0;
+		refreshSliders(board, square, board.getOccupied());
+	}
+	
+	/**
+	 * recalculates every sliding piece whose rays reach a square whose occupancy just changed.
+	 * @param board the bitboard that owns this table
+	 * @param square the square that changed
+	 * @param occupied the new set of occupied squares
+	 */
+	private void refreshSliders(BitBoard board, int square, long occupied){
+		long queens = board.getPieces(Type.queen, Player.white) | board.getPieces(Type.queen, Player.black);
+		long diagonal = board.getPieces(Type.bishop, Player.white) | board.getPieces(Type.bishop, Player.black) | queens;
+		long straight = board.getPieces(Type.rook, Player.white) | board.getPieces(Type.rook, Player.black) | queens;
+		long sliders = ((Attacks.bishop(square, occupied) & diagonal) | (Attacks.rook(square, occupied) & straight)) & ~(1L << square);
+		for(; sliders != 0; sliders &= sliders - 1){
+			int from = Long.numberOfTrailingZeros(sliders);
+			int index = board.pieceAt(from);
+			Player owner = BitBoard.playerOf(index);
+			long updated = Attacks.of(BitBoard.typeOf(index), owner, from, occupied);
+			apply(attacksFrom[from] & ~updated, owner, -1);
+			apply(updated & ~attacksFrom[from], owner, 1);
+			attacksFrom[from] = updated;
+		}
+	}
+	
+	/**
+	 * adds delta to the attack count of every square in a set.
+	 * @param squares the squares to update
+	 * @param player the attacking player
+	 * @param delta the change in the attack count
+	 */
+	private void apply(long squares, Player player, int delta){
+		int base = player.ordinal() * BitBoard.SQUARES;
+		long set = attacked[player.ordinal()];
+		for(; squares != 0; squares &= squares - 1){
+			int square = Long.numberOfTrailingZeros(squares);
+			int count = counts[base + square] += delta;
+			if(count == 0){
+				set &= ~(1L << square);
+			}else{
+				set |= 1L << square;
+			}
+		}
+		attacked[player.ordinal()] = set;
+	}
+}
@@ -0,0 +1,297 @@
+package model;
+
+/**
+ * Attack sets for every type of piece. Knight, king and pawn attacks from a square are read from per-square leaper tables, built when this class is loaded by shifting
+ * a single-square bitboard with the set-wise knights(), kings() and pawns(). Sliding pieces use precomputed tables too. Rook and bishop attacks are looked up with magic bitboards: the occupied squares along a piece's rays are masked out,
+ * multiplied by a per-square magic number and shifted down to an index into a table holding the attack set for that exact blocker arrangement. Queen attacks are the union
+ * of the two. The magic numbers below were found by a random search for multipliers that never map two blocker arrangements with different attacks onto the same slot;
+ * the tables themselves are filled in when this class is loaded.
+ *
+ * All squares are square indexes as used by BitBoard.
+ */
+public final class Attacks{
+	private static final long FILE_A = 0x0101010101010101L;
+	private static final long FILE_H = FILE_A << 7;
+	private static final long FILE_AB = FILE_A | (FILE_A << 1);
+	private static final long FILE_GH = FILE_H | (FILE_H >>> 1);
+	private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+	private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+	
+	private static final long[] ROOK_MASKS = new long[BitBoard.SQUARES];
+	private static final long[] ROOK_MAGICS = {
+		0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+		0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+		0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+		0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+		0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+		0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+		0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+		0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+		0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+		0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+		0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+		0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+		0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+		0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+		0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+		0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+	};
+	private static final int[] ROOK_SHIFTS = new int[BitBoard.SQUARES];
+	private static final long[][] ROOK_TABLE = new long[BitBoard.SQUARES][];
+	
+	private static final long[] BISHOP_MASKS = new long[BitBoard.SQUARES];
+	private static final long[] BISHOP_MAGICS = {
+		0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+		0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+		0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+		0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+		0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+		0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+		0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+		0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+		0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+		0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+		0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+		0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+		0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+		0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+		0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+		0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+	};
+	private static final int[] BISHOP_SHIFTS = new int[BitBoard.SQUARES];
+	private static final long[][] BISHOP_TABLE = new long[BitBoard.SQUARES][];
+	
+	private static final long[][] BETWEEN = new long[BitBoard.SQUARES][BitBoard.SQUARES];
+	private static final long[][] LINE = new long[BitBoard.SQUARES][BitBoard.SQUARES];
+	
+	private static final long[] KNIGHT = new long[BitBoard.SQUARES];
+	private static final long[] KING = new long[BitBoard.SQUARES];
+	private static final long[][] PAWN = new long[Player.values().length][BitBoard.SQUARES];
+	
+	static{
+		for(int square = 0; square < BitBoard.SQUARES; square++){
+			KNIGHT[square] = knights(1L << square);
+			KING[square] = kings(1L << square);
+			for(Player player : Player.values()){
+				PAWN[player.ordinal()][square] = pawns(1L << square, player);
+			}
+			ROOK_MASKS[square] = relevantMask(square, ROOK_DIRECTIONS);
+			ROOK_TABLE[square] = fillTable(square, ROOK_DIRECTIONS, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS);
+			BISHOP_MASKS[square] = relevantMask(square, BISHOP_DIRECTIONS);
+			BISHOP_TABLE[square] = fillTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS);
+			fillLines(square, ROOK_DIRECTIONS);
+			fillLines(square, BISHOP_DIRECTIONS);
+		}
+	}
+	
+	private Attacks(){}
+	
+	/**
+	 * @param square the square the rook is on
+	 * @param occupied the set of occupied squares
+	 * @return the set of squares attacked by a rook on the square, including the first blocker along each ray
+	 */
+	public static long rook(int square, long occupied){
+		return ROOK_TABLE[square][(int)(((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+	
+	/**
+	 * @param square the square the bishop is on
+	 * @param occupied the set of occupied squares
+	 * @return the set of squares attacked by a bishop on the square, including the first blocker along each ray
+	 */
+	public static long bishop(int square, long occupied){
+		return BISHOP_TABLE[square][(int)(((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+	
+	/**
+	 * @param square the square the knight is on
+	 * @return the set of squares attacked by a knight on the square
+	 */
+	public static long knight(int square){
+		return KNIGHT[square];
+	}
+	
+	/**
+	 * @param square the square the king is on
+	 * @return the set of squares attacked by a king on the square
+	 */
+	public static long king(int square){
+		return KING[square];
+	}
+	
+	/**
+	 * @param square the square the pawn is on
+	 * @param player the owner of the pawn
+	 * @return the set of squares attacked (diagonally) by a pawn on the square
+	 */
+	public static long pawn(int square, Player player){
+		return PAWN[player.ordinal()][square];
+	}
+	
+	/**
+	 * @param square the square the queen is on
+	 * @param occupied the set of occupied squares
+	 * @return the set of squares attacked by a queen on the square, including the first blocker along each ray
+	 */
+	public static long queen(int square, long occupied){
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+	
+	/**
+	 * @param a a square
+	 * @param b another square
+	 * @return the squares strictly between a and b if they share a rank, file or diagonal, otherwise an empty set
+	 */
+	public static long between(int a, int b){
+		return BETWEEN[a][b];
+	}
+	
+	/**
+	 * @param a a square
+	 * @param b another square
+	 * @return every square on the rank, file or diagonal through both a and b, edge to edge, otherwise an empty set
+	 */
+	public static long line(int a, int b){
+		return LINE[a][b];
+	}
+	
+	/**
+	 * gets the attacks of any piece.
+	 * @param type the type of the piece
+	 * @param player the owner of the piece
+	 * @param square the square the piece is on
+	 * @param occupied the set of occupied squares
+	 * @return the set of squares attacked by the piece
+	 */
+	public static long of(Type type, Player player, int square, long occupied){
+		switch(type){
+		case pawn:
+			return pawn(square, player);
+		case knight:
+			return knight(square);
+		case bishop:
+			return bishop(square, occupied);
+		case rook:
+			return rook(square, occupied);
+		case queen:
+			return queen(square, occupied);
+		default:
+			return king(square);
+		}
+	}
+	
+	/**
+	 * the set-wise forms below are used to build the per-square tables, and are handy for attacking with every piece of a type at once.
+	 * @param knights a set of squares holding knights
+	 * @return the set of squares attacked by those knights
+	 */
+	public static long knights(long knights){
+		return ((knights << 17) & ~FILE_A) | ((knights << 15) & ~FILE_H) | ((knights << 10) & ~FILE_AB) | ((knights << 6) & ~FILE_GH)
+				| ((knights >>> 17) & ~FILE_H) | ((knights >>> 15) & ~FILE_A) | ((knights >>> 10) & ~FILE_GH) | ((knights >>> 6) & ~FILE_AB);
+	}
+	
+	/**
+	 * @param kings a set of squares holding kings
+	 * @return the set of squares attacked by those kings
+	 */
+	public static long kings(long kings){
+		long sideways = ((kings << 1) & ~FILE_A) | ((kings >>> 1) & ~FILE_H);
+		long row = kings | sideways;
+		return sideways | (row << Location.SIZE) | (row >>> Location.SIZE);
+	}
+	
+	/**
+	 * @param pawns a set of squares holding pawns
+	 * @param player the owner of the pawns
+	 * @return the set of squares attacked (diagonally) by those pawns
+	 */
+	public static long pawns(long pawns, Player player){
+		if(player == Player.white){
+			return ((pawns << 9) & ~FILE_A) | ((pawns << 7) & ~FILE_H);
+		}
+		return ((pawns >>> 7) & ~FILE_A) | ((pawns >>> 9) & ~FILE_H);
+	}
+	
+	/**
+	 * walks the rays from a square one step at a time. Only used to build the tables.
+	 * @param square the starting square
+	 * @param directions the directions to walk in
+	 * @param occupied the set of occupied squares. Each ray stops on the first occupied square.
+	 * @return the set of squares reached
+	 */
+	private static long slowAttacks(int square, int[][] directions, long occupied){
+		long result = 0;
+		for(int[] d : directions){
+			for(int x = square % Location.SIZE + d[0], y = square / Location.SIZE + d[1]; x >= 0 && x < Location.SIZE && y >= 0 && y < Location.SIZE; x += d[0], y += d[1]){
+				long bit = 1L << (y * Location.SIZE + x);
+				result |= bit;
+				if((occupied & bit) != 0)break;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * fills in the between and line sets for every square reachable from a square along the directions given.
+	 * @param square the starting square
+	 * @param directions the directions to walk in
+	 */
+	private static void fillLines(int square, int[][] directions){
+		for(int[] d : directions){
+			long full = slowAttacks(square, new int[][]{d, {-d[0], -d[1]}}, 0) | (1L << square);
+			long between = 0;
+			for(int x = square % Location.SIZE + d[0], y = square / Location.SIZE + d[1]; x >= 0 && x < Location.SIZE && y >= 0 && y < Location.SIZE; x += d[0], y += d[1]){
+				int other = y * Location.SIZE + x;
+				BETWEEN[square][other] = between;
+				LINE[square][other] = full;
+				between |= 1L << other;
+			}
+		}
+	}
+	
+	/**
+	 * builds the set of squares whose occupancy can change the attacks from a square. The last square of every ray never matters, so it is left out.
+	 * @param square the square the piece is on
+	 * @param directions the directions the piece moves in
+	 * @return the relevant occupancy mask
+	 */
+	private static long relevantMask(int square, int[][] directions){
+		long result = 0;
+		for(int[] d : directions){
+			for(int x = square % Location.SIZE + d[0], y = square / Location.SIZE + d[1]; x + d[0] >= 0 && x + d[0] < Location.SIZE && y + d[1] >= 0 && y + d[1] < Location.SIZE; x += d[0], y += d[1]){
+				result |= 1L << (y * Location.SIZE + x);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * fills in the attack table for one square by enumerating every blocker arrangement within the mask.
+	 * @param square the square being filled in
+	 * @param directions the directions the piece moves in
+	 * @param mask the relevant occupancy mask for the square
+	 * @param magic the magic number for the square
+	 * @param shifts the array in which to store the shift for the square
+	 * @return the filled in attack table for the square
+	 * @throws IllegalStateException if the magic number maps two arrangements with different attacks onto the same slot
+	 */
+	private static long[] fillTable(int square, int[][] directions, long mask, long magic, int[] shifts){
+		int bits = Long.bitCount(mask);
+		long[] table = new long[1 << bits];
+		boolean[] used = new boolean[table.length];
+		shifts[square] = 64 - bits;
+		
+		//enumerate every subset of the mask
+		long subset = 0;
+		do{
+			int index = (int)((subset * magic) >>> shifts[square]);
+			long attacks = slowAttacks(square, directions, subset);
+			if(used[index] && table[index] != attacks)throw new IllegalStateException("Bad magic number for square " + square);
+			used[index] = true;
+			table[index] = attacks;
+			subset = (subset - mask) & mask;
+		}while(subset != 0);
+		return table;
+	}
+}
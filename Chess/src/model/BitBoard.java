@@ -0,0 +1,442 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A bitboard representation of the pieces on a chess board. Each of the twelve kinds of piece (one per Type per Player) is stored as a 64-bit set in which bit
+ * {@code y * 8 + x} is set when that kind of piece occupies the square at (x, y). Occupancy for each player, the combined occupancy, and the player whose turn it is are
+ * kept alongside the piece sets so that queries never need to touch a Tile. The bitboard also remembers which squares still hold a piece that has never moved and the square
+ * that can be captured en passant, so it holds everything needed to generate moves.
+ *
+ * A 64-bit Zobrist key (see Zobrist) is updated alongside every change as well, so positions can be hashed and compared in constant time. Castling rights are derived from
+ * the unmoved kings and rooks on their starting squares.
+ *
+ * An AttackTable is updated alongside every change, so whether a square is threatened can be answered without rebuilding a threat map.
+ *
+ * Packed moves (see PackedMove) can be made and unmade directly on a bitboard. Undo information is kept on an internal stack, so making and unmaking moves does not
+ * allocate.
+ *
+ * Squares are referred to by index (0 = a1, 7 = h1, 56 = a8, 63 = h8) and pieces by the index returned from {@code index(Type, Player)}.
+ */
+public final class BitBoard{
+	public static final int SQUARES = Location.SIZE * Location.SIZE;
+	public static final int NONE = -1;
+	public static final int TYPES = Type.values().length;
+	public static final int PIECES = TYPES * Player.values().length;
+	private static final Type[] TYPE_VALUES = Type.values();
+	private static final Player[] PLAYER_VALUES = Player.values();
+	private static final int INITIAL_STACK = 64;
+	
+	public static final int CASTLE_WHITE_KINGSIDE = 1;
+	public static final int CASTLE_WHITE_QUEENSIDE = 2;
+	public static final int CASTLE_BLACK_KINGSIDE = 4;
+	public static final int CASTLE_BLACK_QUEENSIDE = 8;
+	private static final int A1 = 0, E1 = 4, H1 = 7, A8 = 56, E8 = 60, H8 = 63;
+	private static final long CASTLING_SQUARES = (1L << A1) | (1L << E1) | (1L << H1) | (1L << A8) | (1L << E8) | (1L << H8);
+	
+	private long[] pieces = new long[PIECES];
+	private long[] occupancy = new long[PLAYER_VALUES.length];
+	private long occupied;
+	private byte[] mailbox = new byte[SQUARES];
+	private Player turn = Player.white;
+	private long unmoved;
+	private int enPassant = NONE;
+	private AttackTable attacks = new AttackTable();
+	private int castling;
+	private long key;
+	
+	private int ply;
+	private long[] undoKey = new long[INITIAL_STACK];
+	private int[] undoCaptured = new int[INITIAL_STACK];
+	private int[] undoEnPassant = new int[INITIAL_STACK];
+	private long[] undoUnmoved = new long[INITIAL_STACK];
+	
+	/**
+	 * Constructs an empty bitboard with white to move.
+	 */
+	public BitBoard(){
+		Arrays.fill(mailbox, (byte)NONE);
+	}
+	
+	/**
+	 * Copy constructor.
+	 * @param other the bitboard to copy
+	 */
+	private BitBoard(BitBoard other){
+		pieces = other.pieces.clone();
+		occupancy = other.occupancy.clone();
+		occupied = other.occupied;
+		mailbox = other.mailbox.clone();
+		turn = other.turn;
+		unmoved = other.unmoved;
+		enPassant = other.enPassant;
+		attacks = other.attacks.copy();
+		castling = other.castling;
+		key = other.key;
+	}
+	
+	/**
+	 * @return an independent copy of this bitboard.
+	 */
+	public BitBoard copy(){
+		return new BitBoard(this);
+	}
+	
+	/**
+	 * gets the piece index for the corresponding type and player.
+	 * @param type the type of the piece
+	 * @param player the player who owns the piece
+	 * @return a number between 0 and {@code PIECES - 1}
+	 */
+	public static int index(Type type, Player player){
+		return player.ordinal() * TYPES + type.ordinal();
+	}
+	
+	/**
+	 * @param index a piece index
+	 * @return the type of piece represented by the index
+	 */
+	public static Type typeOf(int index){
+		return TYPE_VALUES[index % TYPES];
+	}
+	
+	/**
+	 * @param index a piece index
+	 * @return the player who owns the piece represented by the index
+	 */
+	public static Player playerOf(int index){
+		return PLAYER_VALUES[index / TYPES];
+	}
+	
+	/**
+	 * gets the square index of the corresponding location.
+	 * @param loc the location
+	 * @return the square index of loc
+	 */
+	public static int square(Location loc){
+		return loc.getIndex();
+	}
+	
+	/**
+	 * gets the location of the corresponding square index.
+	 * @param square the square index
+	 * @return the location represented by the square index
+	 */
+	public static Location location(int square){
+		return Location.valueOf(square);
+	}
+	
+	/**
+	 * places a piece on the corresponding square. The square must be empty.
+	 * @param square the square on which to place the piece
+	 * @param type the type of the piece
+	 * @param player the player who owns the piece
+	 */
+	public void put(int square, Type type, Player player){
+		put(square, index(type, player));
+	}
+	
+	/**
+	 * places a piece on the corresponding square. The square must be empty.
+	 * @param square the square on which to place the piece
+	 * @param index the index of the piece
+	 */
+	private void put(int square, int index){
+		long bit = 1L << square;
+		pieces[index] |= bit;
+		occupancy[index / TYPES] |= bit;
+		occupied |= bit;
+		mailbox[square] = (byte)index;
+		key ^= Zobrist.PIECES[index][square];
+		attacks.added(this, square, index);
+		if((CASTLING_SQUARES & bit) != 0)updateCastling();
+	}
+	
+	/**
+	 * removes whatever piece is on the corresponding square.
+	 * @param square the square to clear
+	 * @return the index of the piece that was removed, {@code NONE} if the square was empty.
+	 */
+	public int remove(int square){
+		int index = mailbox[square];
+		if(index == NONE)return NONE;
+		long bit = ~(1L << square);
+		pieces[index] &= bit;
+		occupancy[index / TYPES] &= bit;
+		occupied &= bit;
+		mailbox[square] = NONE;
+		key ^= Zobrist.PIECES[index][square];
+		attacks.removed(this, square, index);
+		if((CASTLING_SQUARES & (1L << square)) != 0)updateCastling();
+		return index;
+	}
+	
+	/**
+	 * @param square the square to look at
+	 * @return the index of the piece on the square, {@code NONE} if the square is empty.
+	 */
+	public int pieceAt(int square){
+		return mailbox[square];
+	}
+	
+	/**
+	 * @param square the square to look at
+	 * @return whether or not the square is occupied
+	 */
+	public boolean isOccupied(int square){
+		return (occupied & (1L << square)) != 0;
+	}
+	
+	/**
+	 * @param index a piece index
+	 * @return the set of squares holding that kind of piece
+	 */
+	public long getPieces(int index){
+		return pieces[index];
+	}
+	
+	/**
+	 * @param type the type of the pieces
+	 * @param player the owner of the pieces
+	 * @return the set of squares holding that kind of piece
+	 */
+	public long getPieces(Type type, Player player){
+		return pieces[index(type, player)];
+	}
+	
+	/**
+	 * @param player the player
+	 * @return the set of squares occupied by that player's pieces
+	 */
+	public long getOccupancy(Player player){
+		return occupancy[player.ordinal()];
+	}
+	
+	/**
+	 * @return the set of all occupied squares
+	 */
+	public long getOccupied(){
+		return occupied;
+	}
+	
+	/**
+	 * @param player the owner of the king
+	 * @return the square the king is on, {@code NONE} if the player has no king.
+	 */
+	public int getKingSquare(Player player){
+		long king = pieces[index(Type.king, player)];
+		return (king == 0) ? NONE : Long.numberOfTrailingZeros(king);
+	}
+	
+	/**
+	 * @return the player whose turn it is
+	 */
+	public Player getTurn(){
+		return turn;
+	}
+	
+	/**
+	 * sets the player whose turn it is
+	 * @param turn the player to move
+	 */
+	public void setTurn(Player turn){
+		if(this.turn != turn)key ^= Zobrist.BLACK_TO_MOVE;
+		this.turn = turn;
+	}
+	
+	/**
+	 * @param square the square to look at
+	 * @return whether or not the piece on the square has never moved
+	 */
+	public boolean isUnmoved(int square){
+		return (unmoved & (1L << square)) != 0;
+	}
+	
+	/**
+	 * @return the set of squares holding pieces that have never moved
+	 */
+	public long getUnmoved(){
+		return unmoved;
+	}
+	
+	/**
+	 * records whether or not the piece on a square has moved
+	 * @param square the square of the piece
+	 * @param moved whether or not the piece has moved
+	 */
+	public void setMoved(int square, boolean moved){
+		if(moved){
+			unmoved &= ~(1L << square);
+		}else{
+			unmoved |= 1L << square;
+		}
+		if((CASTLING_SQUARES & (1L << square)) != 0)updateCastling();
+	}
+	
+	/**
+	 * @return the castling rights still available, as a combination of the CASTLE constants. A right is available while the king and the rook on its starting square have
+	 * both never moved.
+	 */
+	public int getCastlingRights(){
+		return castling;
+	}
+	
+	/**
+	 * recalculates the castling rights from the unmoved kings and rooks and folds the change into the key.
+	 */
+	private void updateCastling(){
+		long whiteRooks = pieces[index(Type.rook, Player.white)] & unmoved;
+		long blackRooks = pieces[index(Type.rook, Player.black)] & unmoved;
+		int rights = 0;
+		if((pieces[index(Type.king, Player.white)] & unmoved & (1L << E1)) != 0){
+			if((whiteRooks & (1L << H1)) != 0)rights |= CASTLE_WHITE_KINGSIDE;
+			if((whiteRooks & (1L << A1)) != 0)rights |= CASTLE_WHITE_QUEENSIDE;
+		}
+		if((pieces[index(Type.king, Player.black)] & unmoved & (1L << E8)) != 0){
+			if((blackRooks & (1L << H8)) != 0)rights |= CASTLE_BLACK_KINGSIDE;
+			if((blackRooks & (1L << A8)) != 0)rights |= CASTLE_BLACK_QUEENSIDE;
+		}
+		key ^= Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+		castling = rights;
+	}
+	
+	/**
+	 * @return the Zobrist key of this position
+	 */
+	public long getKey(){
+		return key;
+	}
+	
+	/**
+	 * compares the parts of two positions that affect play: the pieces, the player to move, the castling rights and the en passant square.
+	 * @param other the position to compare with
+	 * @return whether or not the two positions are the same
+	 */
+	public boolean samePosition(BitBoard other){
+		return key == other.key && turn == other.turn && castling == other.castling && enPassant == other.enPassant && Arrays.equals(pieces, other.pieces);
+	}
+	
+	/**
+	 * @return the square that can be captured onto en passant, {@code NONE} if there isn't one.
+	 */
+	public int getEnPassant(){
+		return enPassant;
+	}
+	
+	/**
+	 * sets the square that can be captured onto en passant. This is the square skipped by a pawn that just moved two spaces.
+	 * @param square the skipped square, {@code NONE} if there isn't one
+	 */
+	public void setEnPassant(int square){
+		if(enPassant != NONE)key ^= Zobrist.EN_PASSANT[enPassant % Location.SIZE];
+		if(square != NONE)key ^= Zobrist.EN_PASSANT[square % Location.SIZE];
+		enPassant = square;
+	}
+	
+	/**
+	 * gets every piece belonging to a player that attacks a square.
+	 * @param square the square being attacked
+	 * @param player the player whose pieces are attacking
+	 * @param occupied the set of occupied squares to use for sliding pieces
+	 * @return the set of squares holding the attacking pieces
+	 */
+	public long getAttackers(int square, Player player, long occupied){
+		int base = player.ordinal() * TYPES;
+		long queens = pieces[base + Type.queen.ordinal()];
+		return (Attacks.pawn(square, player.getOpponent()) & pieces[base + Type.pawn.ordinal()])
+				| (Attacks.knight(square) & pieces[base + Type.knight.ordinal()])
+				| (Attacks.king(square) & pieces[base + Type.king.ordinal()])
+				| (Attacks.bishop(square, occupied) & (pieces[base + Type.bishop.ordinal()] | queens))
+				| (Attacks.rook(square, occupied) & (pieces[base + Type.rook.ordinal()] | queens));
+	}
+	
+	/**
+	 * @param square the square being attacked
+	 * @param player the player whose pieces are attacking
+	 * @return whether or not any of the player's pieces attack the square
+	 */
+	public boolean isAttacked(int square, Player player){
+		return attacks.isAttacked(square, player);
+	}
+	
+	/**
+	 * @param player the attacking player
+	 * @return the set of squares attacked by at least one of the player's pieces
+	 */
+	public long getAttacked(Player player){
+		return attacks.getAttacked(player);
+	}
+	
+	/**
+	 * makes a packed move that was generated for this position. The move can be taken back with {@code unmake(int)}.
+	 * @param move the packed move to make
+	 */
+	public void make(int move){
+		if(ply == undoCaptured.length){
+			undoKey = Arrays.copyOf(undoKey, ply * 2);
+			undoCaptured = Arrays.copyOf(undoCaptured, ply * 2);
+			undoEnPassant = Arrays.copyOf(undoEnPassant, ply * 2);
+			undoUnmoved = Arrays.copyOf(undoUnmoved, ply * 2);
+		}
+		int from = PackedMove.getFrom(move);
+		int to = PackedMove.getTo(move);
+		int flags = PackedMove.getFlags(move);
+		undoKey[ply] = key;
+		undoEnPassant[ply] = enPassant;
+		undoUnmoved[ply] = unmoved;
+		
+		int piece = remove(from);
+		undoCaptured[ply++] = remove(((flags & PackedMove.FLAG_EN_PASSANT) != 0) ? captureSquare(move) : to);
+		Type promotion = PackedMove.getPromotion(move);
+		put(to, (promotion == null) ? piece : index(promotion, turn));
+		
+		unmoved &= ~((1L << from) | (1L << to));
+		updateCastling();
+		setEnPassant(((flags & PackedMove.FLAG_DOUBLE_PUSH) != 0) ? (from + to) / 2 : NONE);
+		setTurn(turn.getOpponent());
+	}
+	
+	/**
+	 * takes back the last move made with {@code make(int)}.
+	 * @param move the packed move to take back. Must be the last move that was made.
+	 */
+	public void unmake(int move){
+		int from = PackedMove.getFrom(move);
+		int to = PackedMove.getTo(move);
+		turn = turn.getOpponent();
+		
+		int piece = remove(to);
+		if(PackedMove.getPromotion(move) != null)piece = index(Type.pawn, turn);
+		put(from, piece);
+		int captured = undoCaptured[--ply];
+		if(captured != NONE){
+			put(((PackedMove.getFlags(move) & PackedMove.FLAG_EN_PASSANT) != 0) ? captureSquare(move) : to, captured);
+		}
+		
+		enPassant = undoEnPassant[ply];
+		unmoved = undoUnmoved[ply];
+		updateCastling();
+		key = undoKey[ply];
+	}
+	
+	/**
+	 * @param move an en passant move
+	 * @return the square of the pawn captured by the move. It sits beside the moving pawn's starting square, on the file the pawn moves to.
+	 */
+	static int captureSquare(int move){
+		return (PackedMove.getFrom(move) & ~(Location.SIZE - 1)) | (PackedMove.getTo(move) & (Location.SIZE - 1));
+	}
+	
+	/**
+	 * returns a string representation of this bitboard in the same layout as {@code Board.toString()}
+	 */
+	public String toString(){
+		StringBuilder result = new StringBuilder();
+		for(int square = 0; square < SQUARES; square++){
+			int index = mailbox[square];
+			result.append((index == NONE) ? "X" : typeOf(index).toFileString()).append(' ');
+			if(square % Location.SIZE == Location.SIZE - 1)result.append('\n');
+		}
+		return result.toString();
+	}
+}
@@ -7,8 +7,10 @@ import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
-public class Board{
+public class Board implements BoardView{
 	private LinkedHashMap<Location, Tile> tiles = new LinkedHashMap<Location, Tile>();
+	private Tile[] squares = new Tile[Location.COUNT];
+	private BitBoard bits = new BitBoard();
 	
 	/**
 	 * @param initPieces flag indicating whther or not this board should automatically populate the board with pieces in the default configuration
@@ -35,39 +37,57 @@ public class Board{
 		
 		try(ChessReader in = new ChessReader(new FileReader(initialFile))){
 			Board temp = in.readGame().getBoard();
-			tiles = temp.tiles;
+			for(Map.Entry<Location, Tile> e : temp.tiles.entrySet()){
+				if(e.getValue().isOccupied()){
+					addPiece(e.getKey(), e.getValue().getPiece());
+					setMoved(e.getKey(), temp.hasMoved(e.getKey()));
+				}
+			}
 		}catch(IOException ex){
 			throw ex;
 		}
 	}
 	
+	/**
+	 * removes every piece from this board, so that it can be reused for another game.
+	 * @param initPieces flag indicating whether or not to then populate the board with pieces in the default configuration
+	 */
+	public void reset(boolean initPieces){
+		for(Tile tile : squares){
+			if(tile.isOccupied())tile.setPiece(null);
+		}
+		if(initPieces)initPieces();
+	}
+	
 	private void initTiles(){
 		for(Location loc : Location.getAllLocations()){
-			tiles.put(loc, new Tile());
+			Tile tile = new Tile(this, loc.getIndex());
+			tiles.put(loc, tile);
+			squares[loc.getIndex()] = tile;
 		}
 	}
 	
 	private void initPieces(){
-		addPiece(Location.valueOf("a1"), new Piece(Type.rook, Player.white));
-		addPiece(Location.valueOf("b1"), new Piece(Type.knight, Player.white));
-		addPiece(Location.valueOf("c1"), new Piece(Type.bishop, Player.white));
-		addPiece(Location.valueOf("d1"), new Piece(Type.queen, Player.white));
-		addPiece(Location.valueOf("e1"), new Piece(Type.king, Player.white));
-		addPiece(Location.valueOf("f1"), new Piece(Type.bishop, Player.white));
-		addPiece(Location.valueOf("g1"), new Piece(Type.knight, Player.white));
-		addPiece(Location.valueOf("h1"), new Piece(Type.rook, Player.white));
+		addPiece(Location.valueOf("a1"), Piece.valueOf(Type.rook, Player.white));
+		addPiece(Location.valueOf("b1"), Piece.valueOf(Type.knight, Player.white));
+		addPiece(Location.valueOf("c1"), Piece.valueOf(Type.bishop, Player.white));
+		addPiece(Location.valueOf("d1"), Piece.valueOf(Type.queen, Player.white));
+		addPiece(Location.valueOf("e1"), Piece.valueOf(Type.king, Player.white));
+		addPiece(Location.valueOf("f1"), Piece.valueOf(Type.bishop, Player.white));
+		addPiece(Location.valueOf("g1"), Piece.valueOf(Type.knight, Player.white));
+		addPiece(Location.valueOf("h1"), Piece.valueOf(Type.rook, Player.white));
 		for(int i = 0; i < Location.SIZE; i++){
-			addPiece(Location.valueOf(i, 1), new Piece(Type.pawn, Player.white));
-			addPiece(Location.valueOf(i, 6), new Piece(Type.pawn, Player.black));
+			addPiece(Location.valueOf(i, 1), Piece.valueOf(Type.pawn, Player.white));
+			addPiece(Location.valueOf(i, 6), Piece.valueOf(Type.pawn, Player.black));
 		}
-		addPiece(Location.valueOf("a8"), new Piece(Type.rook, Player.black));
-		addPiece(Location.valueOf("b8"), new Piece(Type.knight, Player.black));
-		addPiece(Location.valueOf("c8"), new Piece(Type.bishop, Player.black));
-		addPiece(Location.valueOf("d8"), new Piece(Type.queen, Player.black));
-		addPiece(Location.valueOf("e8"), new Piece(Type.king, Player.black));
-		addPiece(Location.valueOf("f8"), new Piece(Type.bishop, Player.black));
-		addPiece(Location.valueOf("g8"), new Piece(Type.knight, Player.black));
-		addPiece(Location.valueOf("h8"), new Piece(Type.rook, Player.black));
+		addPiece(Location.valueOf("a8"), Piece.valueOf(Type.rook, Player.black));
+		addPiece(Location.valueOf("b8"), Piece.valueOf(Type.knight, Player.black));
+		addPiece(Location.valueOf("c8"), Piece.valueOf(Type.bishop, Player.black));
+		addPiece(Location.valueOf("d8"), Piece.valueOf(Type.queen, Player.black));
+		addPiece(Location.valueOf("e8"), Piece.valueOf(Type.king, Player.black));
+		addPiece(Location.valueOf("f8"), Piece.valueOf(Type.bishop, Player.black));
+		addPiece(Location.valueOf("g8"), Piece.valueOf(Type.knight, Player.black));
+		addPiece(Location.valueOf("h8"), Piece.valueOf(Type.rook, Player.black));
 	}
 	
 	/**
@@ -79,25 +99,17 @@ public class Board{
 		if(loc == null)throw new IllegalArgumentException("loc cannot be null");
 		if(p == null)throw new IllegalArgumentException("p cannot be null");
 		
-		Tile tile = tiles.get(loc);
-		
-		Piece temp = tile.setPiece(p);
-		if(temp != null){
-			System.err.println(temp);
+		Tile tile = squares[loc.getIndex()];
+		if(tile.isOccupied()){
+			System.err.println(tile.getPiece());
 			System.err.println(p);
-			tile.setPiece(temp);
 			throw new IllegalArgumentException("There is already a piece in location: " + loc);
 		}
 		
-		if(p.getType() == Type.king){
-			for(Tile t : tiles.values()){
-				if(t.getPiece() == null)continue;
-				if(t != tile  && t.getPiece().getType() == Type.king && t.getPiece().getPlayer() == p.getPlayer()){
-					t.setPiece(null);
-					break;
-				}
-			}
-		}
+		//a player only has one king, so placing a king replaces the old one
+		int king = (p.getType() == Type.king) ? bits.getKingSquare(p.getPlayer()) : BitBoard.NONE;
+		tile.setPiece(p);
+		if(king != BitBoard.NONE)squares[king].setPiece(null);
 	}
 	
 	/**
@@ -110,13 +122,16 @@ public class Board{
 	}
 	
 	/**
-	 * moves a piece from one location to another.
+	 * moves a piece from one location to another. Whether or not the piece has moved before goes with it.
 	 * @param from the starting location of the piece
 	 * @param to the ending location of the piece
 	 * @return the piece that was previously inhabiting the ending location, null if there wasn't one there.
 	 */
 	public Piece movePiece(Location from, Location to){
-		return tiles.get(to).setPiece(tiles.get(from).setPiece(null));
+		boolean moved = !bits.isUnmoved(from.getIndex());
+		Piece previous = tiles.get(to).setPiece(tiles.get(from).setPiece(null));
+		bits.setMoved(to.getIndex(), moved);
+		return previous;
 	}
 	
 	/**
@@ -124,8 +139,29 @@ public class Board{
 	 * @param loc the location of the piece to get.
 	 * @return the piece located at the corresponding position.
 	 */
+	@Override
 	public Piece getPiece(Location loc){
-		return tiles.get(loc).getPiece();
+		return squares[loc.getIndex()].getPiece();
+	}
+	
+	@Override
+	public Piece getPiece(int square){
+		return squares[square].getPiece();
+	}
+	
+	@Override
+	public boolean isOccupied(Location loc){
+		return bits.isOccupied(loc.getIndex());
+	}
+	
+	@Override
+	public long getOccupied(){
+		return bits.getOccupied();
+	}
+	
+	@Override
+	public long getOccupancy(Player player){
+		return bits.getOccupancy(player);
 	}
 
 	/**
@@ -138,30 +174,60 @@ public class Board{
 	}
 	
 	/**
-	 * returns a semi-deep copy of this board.
-	 * @return
+	 * gets the bitboard that mirrors the contents of this board. The bitboard is kept in sync with every change made through a Tile, so it must not be modified directly.
+	 * @return the underlying bitboard
+	 */
+	BitBoard getBitBoard(){
+		return bits;
+	}
+	
+	/**
+	 * keeps the bitboard in sync whenever the piece on one of this board's tiles changes. A piece placed on a tile starts out as never having moved; moves that put back a
+	 * piece that had moved must say so with {@code setMoved()}.
+	 * @param square the square index of the tile that changed
+	 * @param previous the piece that previously inhabited the tile
+	 * @param piece the piece now inhabiting the tile
 	 */
-	public LinkedHashMap<Location, Tile> getTiles(){
-		LinkedHashMap<Location, Tile> tiles = new LinkedHashMap<Location, Tile>();
-		for(Map.Entry<Location, Tile> entry : this.tiles.entrySet()){
-			tiles.put(entry.getKey(), entry.getValue().copy());
+	private void tileChanged(int square, Piece previous, Piece piece){
+		if(previous != null){
+			bits.remove(square);
+			bits.setMoved(square, true);
+		}
+		if(piece != null){
+			bits.put(square, piece.getType(), piece.getPlayer());
+			bits.setMoved(square, false);
 		}
-		return tiles;
+	}
+	
+	/**
+	 * sets whether or not the piece at the corresponding location has previously moved.
+	 * @param loc the location of the piece
+	 * @param moved whether or not the piece has moved
+	 */
+	public void setMoved(Location loc, boolean moved){
+		if(getPiece(loc) == null)return;
+		bits.setMoved(loc.getIndex(), moved);
+	}
+	
+	/**
+	 * @param loc the location of a piece
+	 * @return whether or not the piece at loc has previously moved, false if there is no piece there
+	 */
+	public boolean hasMoved(Location loc){
+		return getPiece(loc) != null && !bits.isUnmoved(loc.getIndex());
 	}
 	
 	/**
 	 * returns a string representation of this board.
 	 */
 	public String toString(){
-		String result = "";
-		for(int y = 0; y < Location.SIZE; y++){
-			for(int x = 0; x < Location.SIZE; x++){
-				Tile t = tiles.get(Location.valueOf(x, y));
-				result += (t.isOccupied()) ? t.getPiece().getType().toFileString() + " ": "X ";
-			}
-			result+="\n";
+		StringBuilder result = new StringBuilder();
+		for(int square = 0; square < Location.COUNT; square++){
+			Piece p = getPiece(square);
+			result.append((p != null) ? p.getType().toFileString() + " " : "X ");
+			if(square % Location.SIZE == Location.SIZE - 1)result.append('\n');
 		}
-		return result;
+		return result.toString();
 	}
 	
 	/**
@@ -171,9 +237,18 @@ public class Board{
 	 */
 	public static class Tile {
 		private Piece piece = null;
-		private boolean threatened = false;
+		private Board board = null;
+		private int square = BitBoard.NONE;
 		
-		private Tile(){}
+		/**
+		 * constructs a tile that belongs to a board. Changes to the piece on this tile are reflected in that board's bitboard.
+		 * @param board the board that owns this tile
+		 * @param square the square index of this tile
+		 */
+		private Tile(Board board, int square){
+			this.board = board;
+			this.square = square;
+		}
 		
 		/**
 		 * gets the piece at this location
@@ -191,6 +266,7 @@ public class Board{
 		public Piece setPiece(Piece piece){
 			Piece previous = this.piece;
 			this.piece = piece;
+			if(board != null)board.tileChanged(square, previous, piece);
 			return previous;
 		}
 		
@@ -201,37 +277,11 @@ public class Board{
 			return piece != null;
 		}
 		
-		/**
-		 * @return whether or not this tile is threatened.
-		 */
-		public boolean isThreatened(){
-			return threatened;
-		}
-		
-		/**
-		 * sets whether or not this tile is threatened
-		 * @param threatened whether or not this tile is threatened
-		 */
-		public void setThreatened(boolean threatened){
-			this.threatened = threatened;
-		}
-		
-		/**
-		 * copies this tile
-		 * @return a copy of this tile
-		 */
-		private Tile copy(){
-			Tile temp = new Tile();
-			temp.piece = piece;
-			temp.threatened = threatened;
-			return temp;
-		}
-		
 		/**
 		 * returns a string representation of this tile
 		 */
 		public String toString(){
-			return "Piece: " + piece + "; Threatened: " + threatened;
+			return "Piece: " + piece;
 		}
 	}
 }
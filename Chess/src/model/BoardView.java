@@ -0,0 +1,36 @@
+package model;
+
+/**
+ * A read-only view of the pieces on a board. Reading through a view never copies the board, so move generators and painters can look at the pieces as often as they like
+ * without allocating. A view reflects later changes to the board it views.
+ */
+public interface BoardView{
+	/**
+	 * @param loc a location on the board
+	 * @return the piece at loc, null if there isn't one
+	 */
+	public Piece getPiece(Location loc);
+	
+	/**
+	 * @param square the index of a location on the board, see {@code Location.getIndex()}
+	 * @return the piece on the square, null if there isn't one
+	 */
+	public Piece getPiece(int square);
+	
+	/**
+	 * @param loc a location on the board
+	 * @return whether or not there is a piece at loc
+	 */
+	public boolean isOccupied(Location loc);
+	
+	/**
+	 * @return the set of occupied squares, one bit per square index
+	 */
+	public long getOccupied();
+	
+	/**
+	 * @param player a player
+	 * @return the set of squares holding the player's pieces, one bit per square index
+	 */
+	public long getOccupancy(Player player);
+}
@@ -20,11 +20,18 @@ public class CastleMove extends Move{
 	public void execute() {
 		handler.movePiece(from1, to1);
 		handler.movePiece(from2, to2);
+		handler.setMoved(to1, true);
+		handler.setMoved(to2, true);
+		setEnPassant(null);
 	}
 	
 	@Override
 	public void revert(){
 		handler.movePiece(to1, from1);
 		handler.movePiece(to2, from2);
+		//both pieces must never have moved for castling to be allowed
+		handler.setMoved(from1, false);
+		handler.setMoved(from2, false);
+		restoreEnPassant();
 	}
 }
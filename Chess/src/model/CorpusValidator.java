@@ -0,0 +1,301 @@
+package model;
+
+import io.ChessReader;
+import io.GameListener;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a corpus of game files concurrently and reports whether each game is valid. Every game is replayed with {@code ChessReader.readGames()}, so a game is judged exactly
+ * as GameArchiveWriter would judge it: games are separated by blank lines, and a game that starts with a move rather than a placement starts from the standard position.
+ * 
+ * Files are read by the thread calling {@code submit()}, which only splits them into games. Each game is then replayed as its own task on an executor, so even a corpus of
+ * a few large files keeps every thread busy. A game is only submitted once one of a fixed number of permits is free, so no more games are held in memory than there are
+ * permits. Any executor can be used, including one that runs every task on its own virtual thread.
+ */
+public class CorpusValidator{
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final int poolSize;
+	private final List<Result> results = Collections.synchronizedList(new ArrayList<Result>());
+	private final AtomicLong moves = new AtomicLong();
+	
+	/**
+	 * @param executor the executor to replay games on. It is not shut down by this class.
+	 * @param games the greatest number of games submitted and not yet replayed at once
+	 */
+	public CorpusValidator(ExecutorService executor, int games){
+		if(games < 1)throw new IllegalArgumentException("games must be at least 1: " + games);
+		this.executor = executor;
+		this.permits = new Semaphore(games);
+		this.poolSize = games;
+	}
+	
+	/**
+	 * replays every game in a file or, for a directory, every file beneath it. Returns once every game has been submitted; use {@code awaitResults()} to wait for them to
+	 * finish.
+	 * @param path a game file or a directory of them
+	 * @throws IOException if an IOException occurs
+	 * @throws InterruptedException if interrupted while waiting for a free permit
+	 */
+	public void submit(File path)throws IOException, InterruptedException{
+		if(path.isDirectory()){
+			File[] children = path.listFiles();
+			if(children == null)throw new IOException("Cannot list " + path);
+			Arrays.sort(children);
+			for(File child : children){
+				submit(child);
+			}
+			return;
+		}
+		
+		String file = path.getPath();
+		try(Reader in = new FileReader(path)){
+			char[] buffer = new char[BUFFER_SIZE];
+			StringBuilder game = new StringBuilder();
+			int games = 0;
+			int number = 1;
+			int first = 1;
+			int lineStart = 0;
+			//whether the current line holds anything but spaces and tabs, as ChessReader.readGames() decides
+			boolean blank = true;
+			int n;
+			while((n = in.read(buffer, 0, buffer.length)) != -1){
+				for(int i = 0; i < n; i++){
+					char c = buffer[i];
+					game.append(c);
+					if(c == '\n'){
+						if(blank){
+							game.setLength(lineStart);
+							if(game.length() > 0)submit(file, games++, first, game.toString());
+							game.setLength(0);
+							first = number + 1;
+						}
+						number++;
+						lineStart = game.length();
+						blank = true;
+					}else if(c != ' ' && c != '\t' && c != '\r'){
+						blank = false;
+					}
+				}
+			}
+			if(!blank)lineStart = game.length();
+			game.setLength(lineStart);
+			if(game.length() > 0)submit(file, games, first, game.toString());
+		}
+	}
+	
+	/**
+	 * submits one game to the executor once a permit is free for it.
+	 * @param file the file the game was read from
+	 * @param game the number of the game in its file
+	 * @param firstLine the line number of the game's first line in the file
+	 * @param text the lines of the game
+	 */
+	private void submit(final String file, final int game, final int firstLine, final String text)throws InterruptedException{
+		permits.acquire();
+		executor.execute(new Runnable(){
+			@Override
+			public void run(){
+				Replay replay = new Replay(file, game, firstLine);
+				try(ChessReader in = new ChessReader(new StringReader(text))){
+					in.readGames(replay);
+				}catch(IOException | RuntimeException ex){
+					results.add(new Result(file, game, false, GameState.nogame, replay.played, ex.toString()));
+				}finally{
+					permits.release();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * turns the events of one game into a Result.
+	 */
+	private class Replay implements GameListener{
+		private final String file;
+		private final int game;
+		private final int firstLine;
+		private int played = 0;
+		private String error;
+		
+		private Replay(String file, int game, int firstLine){
+			this.file = file;
+			this.game = game;
+			this.firstLine = firstLine;
+		}
+		
+		@Override
+		public void gameStarted(int game){}
+		
+		@Override
+		public void moveRead(int game, BitBoard position, int move){
+			played++;
+		}
+		
+		@Override
+		public void error(int game, int line, String text, String reason){
+			//the first failure is the one that explains the game
+			if(error == null)error = "line " + (firstLine + line - 1) + ": " + reason + " \"" + text + "\"";
+		}
+		
+		@Override
+		public void gameEnded(int game, BitBoard position, GameState state, boolean valid){
+			moves.addAndGet(played);
+			results.add(new Result(file, this.game, valid, state, played, error));
+		}
+	}
+	
+	/**
+	 * waits for every submitted game to finish.
+	 * @return the results of every game, ordered by file and then by game
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public List<Result> awaitResults()throws InterruptedException{
+		//every permit is back once the last game has finished
+		permits.acquire(poolSize);
+		permits.release(poolSize);
+		
+		List<Result> sorted = new ArrayList<Result>(results);
+		Collections.sort(sorted, new Comparator<Result>(){
+			@Override
+			public int compare(Result a, Result b){
+				int c = a.file.compareTo(b.file);
+				return (c != 0) ? c : Integer.compare(a.game, b.game);
+			}
+		});
+		return sorted;
+	}
+	
+	/**
+	 * @return the number of moves replayed so far
+	 */
+	public long getMoveCount(){
+		return moves.get();
+	}
+	
+	/**
+	 * the outcome of replaying one game.
+	 */
+	public static class Result{
+		private final String file;
+		private final int game;
+		private final boolean valid;
+		private final GameState state;
+		private final int moves;
+		private final String error;
+		
+		private Result(String file, int game, boolean valid, GameState state, int moves, String error){
+			this.file = file;
+			this.game = game;
+			this.valid = valid;
+			this.state = state;
+			this.moves = moves;
+			this.error = error;
+		}
+		
+		/**
+		 * @return the file the game was read from
+		 */
+		public String getFile(){
+			return file;
+		}
+		
+		/**
+		 * @return the number of the game in its file, starting from 0
+		 */
+		public int getGame(){
+			return game;
+		}
+		
+		/**
+		 * @return whether or not every command of the game could be carried out
+		 */
+		public boolean isValid(){
+			return valid;
+		}
+		
+		/**
+		 * @return the state of the game after its last valid command
+		 */
+		public GameState getState(){
+			return state;
+		}
+		
+		/**
+		 * @return the number of moves replayed
+		 */
+		public int getMoves(){
+			return moves;
+		}
+		
+		/**
+		 * @return why the game is invalid, null if it is valid
+		 */
+		public String getError(){
+			return error;
+		}
+		
+		public String toString(){
+			return file + "#" + game + ": " + ((valid) ? "valid" : "invalid") + " " + state + " " + moves + " moves" + ((error == null) ? "" : " (" + error + ")");
+		}
+	}
+	
+	public static void main(String[] args){
+		if(args.length == 0)throw new IllegalArgumentException("Usage: CorpusValidator [-games n] path...");
+		int threads = Runtime.getRuntime().availableProcessors();
+		int games = threads * 2;
+		int first = 0;
+		if(args[0].equals("-games") && args.length > 2){
+			games = Integer.parseInt(args[1]);
+			first = 2;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CorpusValidator validator = new CorpusValidator(executor, games);
+		try{
+			long start = System.nanoTime();
+			for(int i = first; i < args.length; i++){
+				validator.submit(new File(args[i]));
+			}
+			List<Result> results = validator.awaitResults();
+			long elapsed = System.nanoTime() - start;
+			
+			int valid = 0;
+			for(Result r : results){
+				System.out.println(r);
+				if(r.isValid())valid++;
+			}
+			double seconds = elapsed / 1e9;
+			System.out.println();
+			System.out.println("Games: " + results.size() + " (" + valid + " valid, " + (results.size() - valid) + " invalid)");
+			System.out.println("Moves: " + validator.getMoveCount());
+			System.out.println("Time: " + (elapsed / 1000000) + " ms (" + (long)(results.size() / seconds) + " games/s, " + (long)(validator.getMoveCount() / seconds) + " moves/s)");
+		}catch(IOException | InterruptedException ex){
+			ex.printStackTrace();
+		}finally{
+			executor.shutdown();
+			try{
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			}catch(InterruptedException ex){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
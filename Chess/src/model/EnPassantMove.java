@@ -8,6 +8,7 @@ package model;
 public class EnPassantMove extends Move{
 	private Location from, to, enemyLoc;
 	private Piece captured;
+	private boolean previouslyMoved;
 	
 	public EnPassantMove(MoveHandler handler, Piece p, Location from, Location to, Location enemyLoc){
 		super(handler, p);
@@ -15,6 +16,7 @@ public class EnPassantMove extends Move{
 		this.to = to;
 		this.enemyLoc = enemyLoc;
 		captured = handler.getTile(enemyLoc).getPiece();
+		previouslyMoved = handler.hasMoved(from);
 	}
 	
 	/**
@@ -23,13 +25,19 @@ public class EnPassantMove extends Move{
 	@Override
 	public void execute() {
 		handler.movePiece(from, to);
+		handler.setMoved(to, true);
 		handler.getTile(enemyLoc).setPiece(null);
+		setEnPassant(null);
 	}
 	
 	@Override
 	public void revert(){
 		handler.movePiece(to, from);
+		handler.setMoved(from, previouslyMoved);
 		handler.getTile(enemyLoc).setPiece(captured);
+		//the captured pawn must have just moved two spaces
+		handler.setMoved(enemyLoc, true);
+		restoreEnPassant();
 	}
 	
 	public Location getFrom(){
@@ -0,0 +1,226 @@
+package model;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, for example the standard starting position:
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}
+ * 
+ * The parser walks the string once, placing each piece on a scratch BitBoard as it is read. The MoveHandler is only changed once the whole string has been read, so a malformed
+ * string, such as a SNAPSHOT from a misbehaving peer, never leaves it half set up. The move counters may be left off, in which case they default to 0 and 1.
+ * 
+ * This program keeps whether pieces have moved rather than castling rights, so castling rights are translated: a king and rook that may castle are marked as never having moved,
+ * every other king and rook as having moved. Pawns are marked as never having moved while they are on their starting rank.
+ */
+final class Fen{
+	//the letters of the types, in the order of Type
+	private static final String PIECES = "prnbqk";
+	private static final Type[] TYPES = Type.values();
+	private static final String CASTLING = "KQkq";
+	private static final int[] CASTLING_RIGHTS = {BitBoard.CASTLE_WHITE_KINGSIDE, BitBoard.CASTLE_WHITE_QUEENSIDE, BitBoard.CASTLE_BLACK_KINGSIDE, BitBoard.CASTLE_BLACK_QUEENSIDE};
+	//the rook each castling right depends on, in the same order as CASTLING
+	private static final int[] CASTLING_ROOKS = {7, 0, 63, 56};
+	private static final int[] KING_SQUARES = {4, 60};
+	
+	private Fen(){}
+	
+	/**
+	 * replaces the position of a MoveHandler with the one described by a FEN string.
+	 * @param handler the handler to set up
+	 * @param fen the position
+	 * @throws IllegalFormatException if fen is not a valid FEN string. The handler is left unchanged.
+	 */
+	static void load(MoveHandler handler, String fen){
+		if(fen == null)throw new IllegalArgumentException("fen must not be null!");
+		BitBoard placed = new BitBoard();
+		int length = fen.length();
+		int i = 0;
+		
+		//piece placement, from the eighth rank down
+		int x = 0;
+		int y = Location.SIZE - 1;
+		for(; i < length && fen.charAt(i) != ' '; i++){
+			char c = fen.charAt(i);
+			if(c == '/'){
+				if(x != Location.SIZE || y == 0)throw error(fen, "bad rank " + (y + 1));
+				x = 0;
+				y--;
+			}else if(c >= '1' && c <= '8'){
+				x += c - '0';
+				if(x > Location.SIZE)throw error(fen, "bad rank " + (y + 1));
+			}else{
+				int type = PIECES.indexOf(Character.toLowerCase(c));
+				if(type < 0 || x >= Location.SIZE)throw error(fen, "bad piece '" + c + "'");
+				Player player = Character.isUpperCase(c) ? Player.white : Player.black;
+				placed.put(y * Location.SIZE + x, TYPES[type], player);
+				x++;
+			}
+		}
+		if(x != Location.SIZE || y != 0)throw error(fen, "the board must have eight ranks of eight squares");
+		
+		//side to move
+		i = skipSpace(fen, i);
+		if(i >= length)throw error(fen, "missing side to move");
+		Player turn;
+		switch(fen.charAt(i++)){
+		case 'w':
+			turn = Player.white;
+			break;
+		case 'b':
+			turn = Player.black;
+			break;
+		default:
+			throw error(fen, "side to move must be w or b");
+		}
+		
+		//castling rights
+		i = skipSpace(fen, i);
+		int rights = 0;
+		if(i < length && fen.charAt(i) == '-'){
+			i++;
+		}else{
+			for(; i < length && fen.charAt(i) != ' '; i++){
+				int right = CASTLING.indexOf(fen.charAt(i));
+				if(right < 0)throw error(fen, "bad castling right '" + fen.charAt(i) + "'");
+				rights |= CASTLING_RIGHTS[right];
+			}
+		}
+		
+		//en passant square
+		i = skipSpace(fen, i);
+		int enPassant = BitBoard.NONE;
+		if(i < length && fen.charAt(i) == '-'){
+			i++;
+		}else{
+			if(i + 2 > length)throw error(fen, "missing en passant square");
+			int file = fen.charAt(i) - 'a';
+			int rank = fen.charAt(i + 1) - '1';
+			if(file < 0 || file >= Location.SIZE || rank != ((turn == Player.white) ? 5 : 2))throw error(fen, "bad en passant square");
+			enPassant = rank * Location.SIZE + file;
+			i += 2;
+		}
+		
+		//move counters
+		int halfmove = 0;
+		int fullmove = 1;
+		i = skipSpace(fen, i);
+		if(i < length){
+			int end = fen.indexOf(' ', i);
+			if(end < 0)end = length;
+			halfmove = parseCount(fen, i, end);
+			i = skipSpace(fen, end);
+			if(i < length){
+				end = fen.indexOf(' ', i);
+				if(end < 0)end = length;
+				fullmove = parseCount(fen, i, end);
+				if(skipSpace(fen, end) < length)throw error(fen, "unexpected text after the move counters");
+			}
+		}
+		
+		//the string is valid, so the handler can be changed
+		handler.reset(false);
+		Board board = handler.getBoard();
+		for(long occupied = placed.getOccupied(); occupied != 0; occupied &= occupied - 1){
+			int square = Long.numberOfTrailingZeros(occupied);
+			board.addPiece(Location.valueOf(square), Piece.valueOf(placed.pieceAt(square)));
+		}
+		setMoved(board, rights);
+		handler.setup(turn, enPassant, halfmove, Math.max(fullmove, 1));
+	}
+	
+	/**
+	 * marks which pieces have moved from the castling rights and the pawns' ranks.
+	 */
+	private static void setMoved(Board board, int rights){
+		BitBoard bits = board.getBitBoard();
+		for(long occupied = bits.getOccupied(); occupied != 0; occupied &= occupied - 1){
+			int square = Long.numberOfTrailingZeros(occupied);
+			Type type = BitBoard.typeOf(bits.pieceAt(square));
+			boolean moved;
+			if(type == Type.pawn){
+				int start = (BitBoard.playerOf(bits.pieceAt(square)) == Player.white) ? 1 : Location.SIZE - 2;
+				moved = square / Location.SIZE != start;
+			}else if(type == Type.king || type == Type.rook){
+				moved = !canCastleWith(bits, square, type, rights);
+			}else{
+				moved = false;
+			}
+			board.setMoved(Location.valueOf(square), moved);
+		}
+	}
+	
+	/**
+	 * @return whether or not the king or rook on square takes part in one of the castling rights
+	 */
+	private static boolean canCastleWith(BitBoard bits, int square, Type type, int rights){
+		for(int r = 0; r < CASTLING_RIGHTS.length; r++){
+			if((rights & CASTLING_RIGHTS[r]) == 0)continue;
+			Player player = (r < 2) ? Player.white : Player.black;
+			if(BitBoard.playerOf(bits.pieceAt(square)) != player)continue;
+			if(type == Type.king && square == KING_SQUARES[player.ordinal()])return true;
+			if(type == Type.rook && square == CASTLING_ROOKS[r])return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * writes the position of a MoveHandler as a FEN string.
+	 * @param handler the handler whose position to write
+	 * @return the FEN string
+	 */
+	static String write(MoveHandler handler){
+		BitBoard bits = handler.getBitBoard();
+		StringBuilder fen = new StringBuilder(90);
+		for(int y = Location.SIZE - 1; y >= 0; y--){
+			int empty = 0;
+			for(int x = 0; x < Location.SIZE; x++){
+				int index = bits.pieceAt(y * Location.SIZE + x);
+				if(index == BitBoard.NONE){
+					empty++;
+					continue;
+				}
+				if(empty > 0)fen.append(empty);
+				empty = 0;
+				char c = PIECES.charAt(BitBoard.typeOf(index).ordinal());
+				fen.append((BitBoard.playerOf(index) == Player.white) ? Character.toUpperCase(c) : c);
+			}
+			if(empty > 0)fen.append(empty);
+			if(y > 0)fen.append('/');
+		}
+		
+		fen.append(' ').append((bits.getTurn() == Player.white) ? 'w' : 'b').append(' ');
+		int rights = bits.getCastlingRights();
+		if(rights == 0){
+			fen.append('-');
+		}else{
+			for(int r = 0; r < CASTLING_RIGHTS.length; r++){
+				if((rights & CASTLING_RIGHTS[r]) != 0)fen.append(CASTLING.charAt(r));
+			}
+		}
+		fen.append(' ');
+		int enPassant = bits.getEnPassant();
+		fen.append((enPassant == BitBoard.NONE) ? "-" : Location.valueOf(enPassant).toString());
+		fen.append(' ').append(handler.getHalfmoveClock()).append(' ').append(handler.getFullmoveNumber());
+		return fen.toString();
+	}
+	
+	private static int skipSpace(String fen, int i){
+		while(i < fen.length() && fen.charAt(i) == ' ')i++;
+		return i;
+	}
+	
+	/**
+	 * @return the non-negative number written between start and end
+	 */
+	private static int parseCount(String fen, int start, int end){
+		int value = 0;
+		for(int i = start; i < end; i++){
+			char c = fen.charAt(i);
+			if(c < '0' || c > '9' || value > 100000)throw error(fen, "bad move counter");
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+	
+	private static IllegalFormatException error(String fen, String reason){
+		return new IllegalFormatException("Invalid FEN \"" + fen + "\": " + reason);
+	}
+}
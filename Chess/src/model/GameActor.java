@@ -0,0 +1,172 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Owns a game's MoveHandler and is the only thing that changes it. Any thread may submit a Command; commands are queued and run one at a time, in the order they were
+ * submitted, by a single writer. After each command the writer publishes an immutable Position through a volatile field and tells its Listeners.
+ * 
+ * Readers, such as the view painting the board or a Communicator checking how far the game has got, read the latest Position and never lock or copy anything. Once a
+ * MoveHandler has been handed to a GameActor, nothing else should touch it except through a Command.
+ */
+public class GameActor{
+	/**
+	 * a change to make to the game. Run by the writer.
+	 */
+	public static interface Command{
+		/**
+		 * @param model the game's MoveHandler
+		 */
+		public void execute(MoveHandler model);
+	}
+	
+	/**
+	 * told of each new Position. Called by the writer, so it should return quickly. An exception thrown by a listener is printed and the other listeners are still told.
+	 */
+	public static interface Listener{
+		/**
+		 * @param position the position just published
+		 */
+		public void positionChanged(Position position);
+	}
+	
+	private final MoveHandler model;
+	private final BlockingQueue<Command> mailbox = new LinkedBlockingQueue<Command>();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private volatile Position position;
+	private volatile boolean kill = false;
+	private Thread writer;
+	
+	/**
+	 * creates an actor for a game, whose writer runs on a thread of its own.
+	 * @param model the game. From now on it must only be changed through commands.
+	 */
+	public GameActor(MoveHandler model){
+		this(model, new Executor(){
+			public void execute(Runnable command){
+				Thread thread = new Thread(command);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		});
+	}
+	
+	/**
+	 * creates an actor for a game, whose writer runs on an executor.
+	 * @param model the game. From now on it must only be changed through commands.
+	 * @param executor runs the writer, which blocks for as long as the actor lives. It is not shut down by this class.
+	 */
+	public GameActor(MoveHandler model, Executor executor){
+		this.model = model;
+		this.position = new Position(model);
+		executor.execute(new Writer());
+	}
+	
+	/**
+	 * @return the latest position published. Never null.
+	 */
+	public Position getPosition(){
+		return position;
+	}
+	
+	/**
+	 * @return whether or not the calling thread is this actor's writer, that is whether it is running one of the actor's commands or listeners
+	 */
+	public synchronized boolean isWriter(){
+		return writer == Thread.currentThread();
+	}
+	
+	/**
+	 * queues a command to be run by the writer. Commands submitted after the actor has been killed are dropped.
+	 * @param command the command
+	 */
+	public void submit(Command command){
+		if(!kill)mailbox.add(command);
+	}
+	
+	/**
+	 * queues a move made on this side of the game. The move is made, and sent to the opponent if there is a Communicator, only if it is still legal when its turn comes.
+	 * @param move a packed move, as found in a Position
+	 */
+	public void makeMove(final int move){
+		submit(new Command(){
+			public void execute(MoveHandler model){
+				Position current = position;
+				int from = PackedMove.getFrom(move);
+				int to = PackedMove.getTo(move);
+				if(current.findMove(from, to) != move)return;
+				model.makeMove(model.getMove(move), BitBoard.location(from), BitBoard.location(to));
+			}
+		});
+	}
+	
+	/**
+	 * @param listener a listener to tell of every new position
+	 */
+	public void addListener(Listener listener){
+		listeners.add(listener);
+	}
+	
+	/**
+	 * @param listener a listener to stop telling of new positions
+	 */
+	public void removeListener(Listener listener){
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * stops the writer. Commands still queued are dropped.
+	 */
+	public void kill(){
+		kill = true;
+		synchronized(this){
+			if(writer != null)writer.interrupt();
+		}
+	}
+	
+	/**
+	 * runs every command and publishes the position it leaves.
+	 */
+	private class Writer implements Runnable{
+		public void run(){
+			synchronized(GameActor.this){
+				writer = Thread.currentThread();
+			}
+			try{
+				while(!kill){
+					Command command;
+					try{
+						command = mailbox.take();
+					}catch(InterruptedException ex){
+						continue;
+					}
+					try{
+						command.execute(model);
+					}catch(RuntimeException ex){
+						ex.printStackTrace();
+					}
+					Position next = new Position(model);
+					position = next;
+					for(Listener listener : listeners){
+						//a failing listener must not stop the writer, or every later command would be left in the mailbox
+						try{
+							listener.positionChanged(next);
+						}catch(RuntimeException ex){
+							ex.printStackTrace();
+						}
+					}
+				}
+			}finally{
+				synchronized(GameActor.this){
+					writer = null;
+					//the thread may belong to a pool, so it must not keep an interrupt meant for this loop
+					Thread.interrupted();
+				}
+			}
+		}
+	}
+}
@@ -2,34 +2,38 @@ package model;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.TreeMap;
 
 /**
  * This class is immutable and as such is safe for concurrent use. Also, this class is instance controlled so the only way to retrieve a location is through one of the {@code valueOf()} 
  * methods or the ({@code getLocationByOffset()} method. This class represents a logical location according to tiles on a chess board. As such, there are exactly 64 possible 
  * Location instances.
  * 
+ * Every location also has an index from 0 to 63, {@code y * SIZE + x}, so that a1 is 0, h1 is 7 and h8 is 63. Locations are kept in a flat table by index, so that looking a location
+ * up never builds a String.
+ * 
  * @author kstimson
  * 
  */
 public final class Location implements Comparable<Location>{
 	public static final int SIZE = 8;
+	public static final int COUNT = SIZE * SIZE;
 	public static final String REGEX = "[a-h][1-8]";
 	private static final char START_CHAR = 'a';
-	private static final TreeMap<String, Location> locations = new TreeMap<String, Location>();
+	private static final char START_DIGIT = '1';
+	private static final Location[] locations = new Location[COUNT];
 	
 	static{
-		for(int x = 0; x < SIZE; x++){
-			for(int y = 0; y < SIZE; y++){
-				String string = "" + ((char)(START_CHAR + x)) + "" + (y + 1);
-				locations.put(string, new Location(string, x, y));
-			}
+		for(int index = 0; index < COUNT; index++){
+			int x = index % SIZE;
+			int y = index / SIZE;
+			locations[index] = new Location("" + ((char)(START_CHAR + x)) + "" + (y + 1), x, y);
 		}
 	}
 
 	private String asString;
 	private int x;
 	private int y;
+	private int index;
 	
 	/**
 	 * Private constructor for making location object. They are instance controlled by the {@code valueOf()} methods and {@code getLocationByOffset()}.
@@ -41,6 +45,7 @@ public final class Location implements Comparable<Location>{
 		this.asString = asString;
 		this.x = x;
 		this.y = y;
+		this.index = y * SIZE + x;
 	}
 	
 	/**
@@ -57,6 +62,13 @@ public final class Location implements Comparable<Location>{
 		return y;
 	}
 	
+	/**
+	 * @return this location's index, {@code y * SIZE + x}.
+	 */
+	public int getIndex(){
+		return index;
+	}
+	
 	/**
 	 * @return a String representation of this object.
 	 */
@@ -114,8 +126,22 @@ public final class Location implements Comparable<Location>{
 	 */
 	public static Location valueOf(String location){
 		if(location == null)throw new IllegalArgumentException("location must not be null!");
-		if(!location.matches(REGEX))throw new IllegalFormatException();
-		return locations.get(location);
+		if(location.length() != 2)throw new IllegalFormatException();
+		int x = location.charAt(0) - START_CHAR;
+		int y = location.charAt(1) - START_DIGIT;
+		if(x < 0 || x >= SIZE || y < 0 || y >= SIZE)throw new IllegalFormatException();
+		return locations[y * SIZE + x];
+	}
+	
+	/**
+	 * gets the location with the given index.
+	 * @param index the index of the location, {@code y * SIZE + x}
+	 * @return the location with that index
+	 * @throws IllegalArgumentException if index is not between 0 and 63
+	 */
+	public static Location valueOf(int index){
+		if(index < 0 || index >= COUNT)throw new IllegalArgumentException("Index is out of bounds. Recieved " + index + ". Expected 0 <= index <= " + (COUNT-1));
+		return locations[index];
 	}
 	
 	/**
@@ -128,7 +154,7 @@ public final class Location implements Comparable<Location>{
 	public static Location valueOf(int x, int y){
 		if(x < 0 || x > SIZE-1)throw new IllegalArgumentException("X is out of bounds. Recieved " + x + ". Expected 0 <= x <= " + (SIZE-1));
 		if(y < 0 || y > SIZE-1)throw new IllegalArgumentException("Y is out of bounds. Recieved " + y + ". Expected 0 <= y <= " + (SIZE-1));
-		return locations.get("" + ((char)(START_CHAR + x)) + "" + (y + 1));
+		return locations[y * SIZE + x];
 	}
 	
 	/**
@@ -136,8 +162,14 @@ public final class Location implements Comparable<Location>{
 	 * @return a collection of location objects
 	 */
 	public static Collection<Location> getAllLocations(){
-		//Defensively make a copy just in case the values() method does not already do so.
-		return new ArrayList<Location>(locations.values());
+		//column by column, the order the locations have always been listed in
+		ArrayList<Location> all = new ArrayList<Location>(COUNT);
+		for(int x = 0; x < SIZE; x++){
+			for(int y = 0; y < SIZE; y++){
+				all.add(locations[y * SIZE + x]);
+			}
+		}
+		return all;
 	}
 	
 	/**
@@ -3,6 +3,7 @@ package model;
 public abstract class Move {
 	protected MoveHandler handler;
 	protected Piece piece;
+	private int previousEnPassant = BitBoard.NONE;
 	
 	public Move(MoveHandler handler, Piece piece){
 		this.handler = handler;
@@ -18,4 +19,21 @@ public abstract class Move {
 	 * reverses the effect of this move.
 	 */
 	public abstract void revert();
+	
+	/**
+	 * records the square that can be captured en passant after this move, keeping the position's hash key up to date. Every move should invoke this when executed.
+	 * @param skipped the square skipped by a two space pawn move, null if this move is not one.
+	 */
+	protected void setEnPassant(Location skipped){
+		BitBoard bits = handler.getBitBoard();
+		previousEnPassant = bits.getEnPassant();
+		bits.setEnPassant((skipped == null) ? BitBoard.NONE : BitBoard.square(skipped));
+	}
+	
+	/**
+	 * restores the en passant square that was in effect before this move was executed. Every move should invoke this when reverted.
+	 */
+	protected void restoreEnPassant(){
+		handler.getBitBoard().setEnPassant(previousEnPassant);
+	}
 }
@@ -0,0 +1,186 @@
+package model;
+
+/**
+ * Generates the legal moves of a position as packed ints (see PackedMove). Moves are written into a buffer supplied by the caller, so generating moves creates no objects.
+ *
+ * The rules followed are those MoveHandler has always applied: pawns may move two spaces until they have moved once, en passant is available for one
+ * turn after a two space pawn move, and a move is only legal if it does not leave the mover's king threatened.
+ */
+public final class MoveGenerator{
+	/**
+	 * the size of buffer that is guaranteed to hold every legal move of any position.
+	 */
+	public static final int MAX_MOVES = 256;
+	
+	private MoveGenerator(){}
+	
+	/**
+	 * writes every legal move of the player whose turn it is into the buffer.
+	 * 
+	 * Legality is decided without making the moves. The pieces giving check and the pieces pinned to the king are found once; after that a move by any piece other than the
+	 * king is legal if it stays on its pin line and, when in check, captures the checking piece or blocks its line. King moves are checked against the attack table, taking
+	 * care that the king cannot step back along the line of a sliding piece that checks it. En passant, which removes two pieces from the board at once, is verified by
+	 * making the move.
+	 * @param position the position to generate moves for
+	 * @param buffer the buffer to write the moves into. Should have room for at least {@code MAX_MOVES} moves.
+	 * @return the number of moves written
+	 */
+	public static int generate(BitBoard position, int[] buffer){
+		int count = generatePseudoLegal(position, buffer);
+		Player player = position.getTurn();
+		Player enemy = player.getOpponent();
+		int king = position.getKingSquare(player);
+		if(king == BitBoard.NONE)return count;
+		
+		long occupied = position.getOccupied();
+		long checkers = position.getAttackers(king, enemy, occupied);
+		long pinned = getPinned(position, king, player);
+		
+		//squares a non-king move must land on: anywhere when not in check, on the checker or its line when in single check, nowhere in double check
+		long evasions = -1L;
+		long xray = 0;
+		if(checkers != 0){
+			evasions = (Long.bitCount(checkers) > 1) ? 0 : checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+			for(long c = checkers; c != 0; c &= c - 1){
+				int checker = Long.numberOfTrailingZeros(c);
+				if(isSlider(BitBoard.typeOf(position.pieceAt(checker)))){
+					xray |= Attacks.line(king, checker) & ~(1L << checker);
+				}
+			}
+		}
+		
+		//keep only the legal moves, compacting the buffer as we go
+		int legal = 0;
+		for(int i = 0; i < count; i++){
+			int move = buffer[i];
+			int from = PackedMove.getFrom(move);
+			long to = 1L << PackedMove.getTo(move);
+			boolean ok;
+			if(from == king){
+				ok = !position.isAttacked(PackedMove.getTo(move), enemy) && (xray & to) == 0;
+			}else if((PackedMove.getFlags(move) & PackedMove.FLAG_EN_PASSANT) != 0){
+				position.make(move);
+				ok = !position.isAttacked(king, enemy);
+				position.unmake(move);
+			}else{
+				ok = (evasions & to) != 0 && ((pinned & (1L << from)) == 0 || (Attacks.line(king, from) & to) != 0);
+			}
+			if(ok){
+				buffer[legal++] = move;
+			}
+		}
+		return legal;
+	}
+	
+	/**
+	 * finds the pieces that are pinned to a king: the player's own pieces that are the only piece between the king and an enemy slider that would otherwise attack it.
+	 * @param position the position to look at
+	 * @param king the square of the king
+	 * @param player the owner of the king
+	 * @return the set of squares holding pinned pieces
+	 */
+	static long getPinned(BitBoard position, int king, Player player){
+		Player enemy = player.getOpponent();
+		long queens = position.getPieces(Type.queen, enemy);
+		long snipers = (Attacks.rook(king, 0) & (position.getPieces(Type.rook, enemy) | queens))
+				| (Attacks.bishop(king, 0) & (position.getPieces(Type.bishop, enemy) | queens));
+		long occupied = position.getOccupied();
+		long pinned = 0;
+		for(; snipers != 0; snipers &= snipers - 1){
+			long blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+			if(blockers != 0 && (blockers & (blockers - 1)) == 0){
+				pinned |= blockers & position.getOccupancy(player);
+			}
+		}
+		return pinned;
+	}
+	
+	/**
+	 * @param type a type of piece
+	 * @return whether or not the type moves along rays
+	 */
+	private static boolean isSlider(Type type){
+		return type == Type.bishop || type == Type.rook || type == Type.queen;
+	}
+	
+	/**
+	 * writes every move of the player whose turn it is into the buffer without checking whether the move leaves the king threatened.
+	 * @param position the position to generate moves for
+	 * @param buffer the buffer to write the moves into
+	 * @return the number of moves written
+	 */
+	static int generatePseudoLegal(BitBoard position, int[] buffer){
+		Player player = position.getTurn();
+		long own = position.getOccupancy(player);
+		long enemy = position.getOccupancy(player.getOpponent());
+		long occupied = position.getOccupied();
+		int count = 0;
+		
+		for(long pieces = own; pieces != 0; pieces &= pieces - 1){
+			int from = Long.numberOfTrailingZeros(pieces);
+			long targets;
+			switch(BitBoard.typeOf(position.pieceAt(from))){
+			case pawn:
+				count = addPawnMoves(position, buffer, count, from, player, enemy, occupied);
+				continue;
+			case knight:
+				targets = Attacks.knight(from);
+				break;
+			case bishop:
+				targets = Attacks.bishop(from, occupied);
+				break;
+			case rook:
+				targets = Attacks.rook(from, occupied);
+				break;
+			case queen:
+				targets = Attacks.queen(from, occupied);
+				break;
+			default:
+				targets = Attacks.king(from);
+				break;
+			}
+			count = addMoves(buffer, count, from, targets & ~own, enemy);
+		}
+		return count;
+	}
+	
+	/**
+	 * adds a move from a square to every target, flagging the ones that land on an enemy piece as captures.
+	 * @return the new number of moves in the buffer
+	 */
+	private static int addMoves(int[] buffer, int count, int from, long targets, long enemy){
+		for(; targets != 0; targets &= targets - 1){
+			int to = Long.numberOfTrailingZeros(targets);
+			buffer[count++] = PackedMove.encode(from, to, ((enemy & (1L << to)) != 0) ? PackedMove.FLAG_CAPTURE : PackedMove.NONE);
+		}
+		return count;
+	}
+	
+	/**
+	 * adds the single and double pushes, captures and en passant captures of the pawn on a square.
+	 * @return the new number of moves in the buffer
+	 */
+	private static int addPawnMoves(BitBoard position, int[] buffer, int count, int from, Player player, long enemy, long occupied){
+		long bit = 1L << from;
+		long single = (player == Player.white) ? (bit << Location.SIZE) : (bit >>> Location.SIZE);
+		
+		if((single & occupied) == 0 && single != 0){
+			int to = Long.numberOfTrailingZeros(single);
+			buffer[count++] = PackedMove.encode(from, to, PackedMove.NONE);
+			
+			long dbl = (player == Player.white) ? (single << Location.SIZE) : (single >>> Location.SIZE);
+			if(position.isUnmoved(from) && dbl != 0 && (dbl & occupied) == 0){
+				buffer[count++] = PackedMove.encode(from, Long.numberOfTrailingZeros(dbl), PackedMove.FLAG_DOUBLE_PUSH);
+			}
+		}
+		
+		long attacks = Attacks.pawn(from, player);
+		count = addMoves(buffer, count, from, attacks & enemy, enemy);
+		
+		int enPassant = position.getEnPassant();
+		if(enPassant != BitBoard.NONE && (attacks & (1L << enPassant)) != 0){
+			buffer[count++] = PackedMove.encode(from, enPassant, PackedMove.FLAG_CAPTURE | PackedMove.FLAG_EN_PASSANT);
+		}
+		return count;
+	}
+}
@@ -3,11 +3,7 @@ package model;
 import io.Communicator;
 import io.MovementPacket;
 
-import java.util.ArrayList;
-import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * This class is the interface between the board and any interested parties. This class handles all Piece Movement information and actions. It also applies check constraints, and looks for
@@ -18,11 +14,14 @@ import java.util.Map;
 public class MoveHandler{
 	private Board board;
 	private Communicator com = null;
-	private EnumMap<Player, Location> kings = new EnumMap<Player, Location>(Player.class);
 	private Move lastMove;
 	private Player turn = Player.white;
 	private GameState state;
-	private LinkedHashMap<Location, LinkedHashMap<Location, Move>> legalMoves;
+	private int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+	private int legalMoveCount;
+	private boolean verbose = true;
+	private int halfmoveClock = 0;
+	private int fullmoveNumber = 1;
 	
 	/**
 	 * Constructs a MoveHandler with the corresponding board as its underlying data representation.
@@ -32,6 +31,98 @@ public class MoveHandler{
 		this.board = board;
 	}
 	
+	/**
+	 * returns this MoveHandler to the state of a new one, so that it can be reused for another game.
+	 * @param initPieces flag indicating whether or not to populate the board with pieces in the default configuration
+	 */
+	public void reset(boolean initPieces){
+		board.reset(initPieces);
+		turn = Player.white;
+		getBitBoard().setTurn(turn);
+		getBitBoard().setEnPassant(BitBoard.NONE);
+		lastMove = null;
+		state = null;
+		legalMoveCount = 0;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+	}
+	
+	/**
+	 * creates a MoveHandler set up with a position in Forsyth-Edwards Notation.
+	 * @param fen the position, for example {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}
+	 * @return the new MoveHandler
+	 * @throws IllegalFormatException if fen is not a valid FEN string
+	 */
+	public static MoveHandler fromFen(String fen){
+		MoveHandler handler = new MoveHandler(new Board(false));
+		handler.setFen(fen);
+		return handler;
+	}
+	
+	/**
+	 * replaces the current position with one in Forsyth-Edwards Notation. See Fen for how castling rights are translated.
+	 * @param fen the position
+	 * @throws IllegalFormatException if fen is not a valid FEN string
+	 */
+	public void setFen(String fen){
+		Fen.load(this, fen);
+	}
+	
+	/**
+	 * @return the current position in Forsyth-Edwards Notation
+	 */
+	public String toFen(){
+		return Fen.write(this);
+	}
+	
+	/**
+	 * finishes setting up a position once its pieces are on the board.
+	 * @param turn the player to move
+	 * @param enPassant the square that can be captured en passant, {@code BitBoard.NONE} if there isn't one
+	 * @param halfmoveClock the number of halfmoves since the last capture or pawn move
+	 * @param fullmoveNumber the number of the current full move, starting from 1
+	 */
+	void setup(Player turn, int enPassant, int halfmoveClock, int fullmoveNumber){
+		this.turn = turn;
+		getBitBoard().setTurn(turn);
+		getBitBoard().setEnPassant(enPassant);
+		this.halfmoveClock = halfmoveClock;
+		this.fullmoveNumber = fullmoveNumber;
+		state = GameState.ingame;
+		update();
+		check();
+		checkmates();
+	}
+	
+	/**
+	 * @return the number of halfmoves since the last capture or pawn move
+	 */
+	public int getHalfmoveClock(){
+		return halfmoveClock;
+	}
+	
+	/**
+	 * @return the number of the current full move, starting from 1 and increasing after black moves
+	 */
+	public int getFullmoveNumber(){
+		return fullmoveNumber;
+	}
+	
+	/**
+	 * @return the number of plies played to reach this position, counted from the fullmove number, so a game set up from FEN continues its own count
+	 */
+	public int getPly(){
+		return (fullmoveNumber - 1) * 2 + ((turn == Player.black) ? 1 : 0);
+	}
+	
+	/**
+	 * sets whether or not a move that ends the game prints the result to the standard output stream. Setting up a position never prints. Defaults to true.
+	 * @param verbose whether or not to print
+	 */
+	public void setVerbose(boolean verbose){
+		this.verbose = verbose;
+	}
+	
 	/**
 	 * @return the underlying Board object
 	 */
@@ -39,6 +130,13 @@ public class MoveHandler{
 		return board;
 	}
 	
+	/**
+	 * @return the bitboard mirroring the underlying Board
+	 */
+	BitBoard getBitBoard(){
+		return board.getBitBoard();
+	}
+	
 	/**
 	 * gets the communicator associated with this MoveHandler
 	 * @return the com
@@ -69,9 +167,35 @@ public class MoveHandler{
 	 */
 	public void addPiece(Location loc, Piece p){
 		board.addPiece(loc, p);
-		if(p.getType() == Type.king){
-			kings.put(p.getPlayer(), loc);
-		}
+	}
+	
+	/**
+	 * sets whether or not the piece at the corresponding location has previously moved.
+	 * @param loc the location of the piece
+	 * @param moved whether or not the piece has moved
+	 */
+	public void setMoved(Location loc, boolean moved){
+		board.setMoved(loc, moved);
+	}
+	
+	/**
+	 * @param loc the location of a piece
+	 * @return whether or not the piece at the corresponding location has previously moved
+	 */
+	public boolean hasMoved(Location loc){
+		return board.hasMoved(loc);
+	}
+	
+	/**
+	 * replaces the piece at the corresponding location with another, keeping whether or not it has moved. Used for promotion.
+	 * @param loc the location of the piece to replace
+	 * @param p the piece to put in its place
+	 */
+	void swapPiece(Location loc, Piece p){
+		boolean moved = board.hasMoved(loc);
+		board.removePiece(loc);
+		board.addPiece(loc, p);
+		board.setMoved(loc, moved);
 	}
 	
 	/**
@@ -80,11 +204,7 @@ public class MoveHandler{
 	 * @param to the location that the piece is to be moved to.
 	 */
 	public void movePiece(Location from, Location to){
-		Piece p = board.getPiece(from);
-		if(p == null)return;
-		if(p.getType() == Type.king){
-			kings.put(p.getPlayer(), to);
-		}
+		if(board.getPiece(from) == null)return;
 		board.movePiece(from, to);
 	}
 	
@@ -101,6 +221,7 @@ public class MoveHandler{
 	 */
 	public void endTurn(){
 		turn = (turn == Player.white) ? Player.black : Player.white;
+		board.getBitBoard().setTurn(turn);
 		state = GameState.ingame;
 	}
 	
@@ -111,12 +232,27 @@ public class MoveHandler{
 	 */
 	public void makeMove(Location from, Location to){
 		update();
-		LinkedHashMap<Location, Move> legals = legalMoves.get(from);
-		if(legals == null){
+		int move = findMove(BitBoard.square(from), BitBoard.square(to));
+		if(move == PackedMove.NONE && getBitBoard().pieceAt(BitBoard.square(from)) == BitBoard.NONE){
 			new IllegalArgumentException("There is no piece located at: " + from).printStackTrace();
 			return;
 		}
-		makeMove(legals.get(to));
+		makeMove((move == PackedMove.NONE) ? null : getMove(move));
+	}
+	
+	/**
+	 * looks for a legal move between two squares.
+	 * @param from the square moved from
+	 * @param to the square moved to
+	 * @return the packed move, {@code PackedMove.NONE} if there is no such legal move.
+	 */
+	private int findMove(int from, int to){
+		for(int i = 0; i < legalMoveCount; i++){
+			if(PackedMove.getFrom(legalMoves[i]) == from && PackedMove.getTo(legalMoves[i]) == to){
+				return legalMoves[i];
+			}
+		}
+		return PackedMove.NONE;
 	}
 	
 	/**
@@ -128,8 +264,12 @@ public class MoveHandler{
 			new IllegalArgumentException("m is null").printStackTrace();
 			return;
 		}
+		int pieces = Long.bitCount(getBitBoard().getOccupied());
 		m.execute();
 		lastMove = m;
+		boolean reset = m.piece.getType() == Type.pawn || Long.bitCount(getBitBoard().getOccupied()) < pieces;
+		halfmoveClock = (reset) ? 0 : halfmoveClock + 1;
+		if(turn == Player.black)fullmoveNumber++;
 		finishTurn();
 	}
 	
@@ -146,7 +286,7 @@ public class MoveHandler{
 			return;
 		}
 		if(com != null){
-			com.sendPacket(new MovementPacket(from.getX(), from.getY(), to.getX(), to.getY()));
+			com.sendPacket(new MovementPacket(from.getX(), from.getY(), to.getX(), to.getY(), getPly() + 1));
 		}
 		makeMove(m);
 	}
@@ -158,8 +298,8 @@ public class MoveHandler{
 		endTurn();
 		update();
 		check();
-		applyCheckFilter();
 		checkmates();
+		if(verbose && legalMoveCount == 0)System.out.println(state);
 	}
 	
 	/**
@@ -171,26 +311,36 @@ public class MoveHandler{
 	}
 	
 	/**
-	 * gets a map of all of the tiles for the underlying board.
-	 * @return a map of locations to tiles.
+	 * gets the Zobrist hash key of the current position. The key covers the pieces and their locations, the player whose turn it is, the castling rights and the en passant
+	 * square, and is kept up to date as moves are executed and reverted.
+	 * @return the 64-bit key of the current position
 	 */
-	public LinkedHashMap<Location, Board.Tile> getTiles(){
-		return board.getTiles();
+	public long getPositionKey(){
+		return getBitBoard().getKey();
 	}
 	
 	/**
-	 * forces all legal moves to be recalculated. Invoked internally every time a move is made or a piece added.
+	 * @return an independent copy of the current position. Changes to the copy do not affect this MoveHandler.
+	 */
+	public BitBoard copyPosition(){
+		return getBitBoard().copy();
+	}
+	
+	/**
+	 * compares the current position with the current position of another MoveHandler.
+	 * @param other the other MoveHandler
+	 * @return whether or not both are in the same position
+	 */
+	public boolean isSamePosition(MoveHandler other){
+		return getBitBoard().samePosition(other.getBitBoard());
+	}
+	
+	/**
+	 * forces all legal moves to be recalculated. Invoked internally every time a move is made or a piece added. The moves are kept packed; Move objects are only created
+	 * when they are asked for.
 	 */
 	private void update(){
-		legalMoves = new LinkedHashMap<Location, LinkedHashMap<Location, Move>>();
-		
-		for(Map.Entry<Location, Board.Tile> e : getTiles().entrySet()){
-			if(e.getValue().isOccupied() && e.getValue().getPiece().getPlayer() == turn){
-				LinkedHashMap<Location, Move> moves = new LinkedHashMap<Location, Move>();
-				legalMoves.put(e.getKey(), moves);
-				e.getValue().getPiece().getType().getLegalMoves(moves, this, e.getKey());
-			}
-		}
+		legalMoveCount = MoveGenerator.generate(getBitBoard(), legalMoves);
 	}
 	
 	public void forceUpdate(){
@@ -198,22 +348,10 @@ public class MoveHandler{
 	}
 	
 	/**
-	 * constructs the threatMap for the player whose turn it currently is and adjusts the game mode if the king is in threat.
+	 * adjusts the game mode if the king of the player whose turn it currently is is in threat.
 	 */
 	private void check(){
-		HashMap<Location, Board.Tile> map = constructThreatMap(turn);
-		
-		if(kings.get(turn) == null){
-			for(Map.Entry<Location, Board.Tile> e : map.entrySet()){
-				Piece p = e.getValue().getPiece();
-				if(p!= null && p.getType() == Type.king && p.getPlayer() == turn){
-					kings.put(turn, e.getKey());
-					break;
-				}
-			}
-		}
-		
-		if(map.get(kings.get(turn)).isThreatened()){
+		if(isKingThreatened(turn)){
 			state = GameState.check;
 		}
 	}
@@ -222,31 +360,18 @@ public class MoveHandler{
 	 * check for checkmate and stalemate
 	 */
 	private void checkmates(){
-		for(Map.Entry<Location, LinkedHashMap<Location, Move>> entry : legalMoves.entrySet()){
-			if(!entry.getValue().isEmpty()){
-				return;
-			}
-		}
-		HashMap<Location, Board.Tile> threatMap = constructThreatMap((turn == Player.white) ? Player.white : Player.black);
-		state = (threatMap.get(kings.get(turn)).isThreatened()) ? GameState.checkmate : GameState.stalemate;
-		System.out.println(state);
+		if(legalMoveCount != 0)return;
+		state = (isKingThreatened(turn)) ? GameState.checkmate : GameState.stalemate;
 	}
 	
 	/**
-	 * 
-	 * @param p the player to whom the threat is being applied.
-	 * @return
+	 * asks the attack table kept by the bitboard whether a player's king is threatened.
+	 * @param p the player who owns the king
+	 * @return whether or not any of the opponent's pieces threaten the king
 	 */
-	private HashMap<Location, Board.Tile> constructThreatMap(Player p){
-		HashMap<Location, Board.Tile> map = getTiles();
-		
-		for(Map.Entry<Location, Board.Tile> e : getTiles().entrySet()){
-			if(e.getValue().isOccupied() && e.getValue().getPiece().getPlayer() != p){
-				e.getValue().getPiece().getType().applyThreat(map, e.getKey());
-			}
-		}
-		
-		return map;
+	private boolean isKingThreatened(Player p){
+		int king = getBitBoard().getKingSquare(p);
+		return king != BitBoard.NONE && getBitBoard().isAttacked(king, p.getOpponent());
 	}
 	
 	/**
@@ -257,44 +382,6 @@ public class MoveHandler{
 		return state;
 	}
 	
-	/**
-	 * Removes all invalid moves.
-	 */
-	private void applyCheckFilter(){
-		//local class. Don't worry about this it is never used anywhere other than this method.
-		class LocationPair{
-			Location from, to;
-			
-			public LocationPair(Location from, Location to){
-				this.from = from;
-				this.to = to;
-			}
-		}
-		
-		ArrayList<LocationPair> invalidMoves = new ArrayList<LocationPair>();
-		for(Map.Entry<Location, LinkedHashMap<Location, Move>> entry : legalMoves.entrySet()){
-			for(Map.Entry<Location, Move> e : entry.getValue().entrySet()){
-				Move m = e.getValue();
-				try{
-					m.execute();
-					HashMap<Location, Board.Tile> threatMap = constructThreatMap((turn == Player.white) ? Player.white : Player.black);
-					if(threatMap.get(kings.get(turn)).isThreatened()){
-						invalidMoves.add(new LocationPair(entry.getKey(), e.getKey()));
-					}
-					m.revert();
-				}catch(Exception ex){
-					ex.printStackTrace();
-				}
-			}
-		}
-		for(LocationPair e : invalidMoves){
-			legalMoves.get(e.from).remove(e.to);
-			if(legalMoves.get(e.from).isEmpty()){
-				legalMoves.remove(e.from);
-			}
-		}
-	}
-	
 	/**
 	 * gets all of the legal moves for the piece at the corresponding location
 	 * @param loc
@@ -303,11 +390,49 @@ public class MoveHandler{
 	public LinkedHashMap<Location, Move> getLegalMoves(Location loc){
 		LinkedHashMap<Location, Move> moves = null;
 		if(com == null || turn != com.getPlayer()){
-				moves = legalMoves.get(loc);
+			int from = BitBoard.square(loc);
+			for(int i = 0; i < legalMoveCount; i++){
+				if(PackedMove.getFrom(legalMoves[i]) != from)continue;
+				if(moves == null)moves = new LinkedHashMap<Location, Move>();
+				moves.put(BitBoard.location(PackedMove.getTo(legalMoves[i])), getMove(legalMoves[i]));
+			}
 		}
 		return moves;
 	}
 	
+	/**
+	 * copies the packed legal moves of the current position into a buffer. See PackedMove.
+	 * @param buffer the buffer to copy the moves into. Should have room for at least {@code MoveGenerator.MAX_MOVES} moves.
+	 * @return the number of moves copied
+	 */
+	public int getLegalMoves(int[] buffer){
+		System.arraycopy(legalMoves, 0, buffer, 0, legalMoveCount);
+		return legalMoveCount;
+	}
+	
+	/**
+	 * creates the Move object for a packed move generated in the current position.
+	 * @param move the packed move
+	 * @return the equivalent Move
+	 */
+	public Move getMove(int move){
+		Location from = BitBoard.location(PackedMove.getFrom(move));
+		Location to = BitBoard.location(PackedMove.getTo(move));
+		Piece p = board.getPiece(from);
+		int flags = PackedMove.getFlags(move);
+		Type promotion = PackedMove.getPromotion(move);
+		if(promotion != null){
+			return new SimpleMove(this, p, from, to, Piece.valueOf(promotion, p.getPlayer()));
+		}
+		if((flags & PackedMove.FLAG_EN_PASSANT) != 0){
+			return new EnPassantMove(this, p, from, to, BitBoard.location(BitBoard.captureSquare(move)));
+		}
+		if((flags & PackedMove.FLAG_DOUBLE_PUSH) != 0){
+			return new PawnMove(this, p, from, to, BitBoard.location((PackedMove.getFrom(move) + PackedMove.getTo(move)) / 2));
+		}
+		return new SimpleMove(this, p, from, to);
+	}
+	
 	/**
 	 * displays the board.
 	 */
@@ -0,0 +1,99 @@
+package model;
+
+/**
+ * Encodes moves as plain ints so that they can be generated into an {@code int[]} without creating any objects. The layout is:
+ * 
+ * bits 0-5: the square moved from
+ * bits 6-11: the square moved to
+ * bits 12-15: flags (see the FLAG constants)
+ * bits 16-18: the ordinal of the Type promoted to, 0 if the move is not a promotion
+ * 
+ * Squares are square indexes as used by BitBoard. A packed move is only meaningful in the position it was generated in; {@code MoveHandler.getMove(int)} turns one into a
+ * Move object when one is needed.
+ */
+public final class PackedMove{
+	public static final int NONE = 0;
+	public static final int FLAG_CAPTURE = 1;
+	public static final int FLAG_DOUBLE_PUSH = 2;
+	public static final int FLAG_EN_PASSANT = 4;
+	
+	private static final int SQUARE_MASK = 0x3f;
+	private static final int TO_SHIFT = 6;
+	private static final int FLAG_SHIFT = 12;
+	private static final int FLAG_MASK = 0xf;
+	private static final int PROMOTION_SHIFT = 16;
+	private static final int PROMOTION_MASK = 0x7;
+	
+	private PackedMove(){}
+	
+	/**
+	 * @param from the square moved from
+	 * @param to the square moved to
+	 * @param flags any combination of the FLAG constants
+	 * @return the packed move
+	 */
+	public static int encode(int from, int to, int flags){
+		return from | (to << TO_SHIFT) | (flags << FLAG_SHIFT);
+	}
+	
+	/**
+	 * @param from the square moved from
+	 * @param to the square moved to
+	 * @param flags any combination of the FLAG constants
+	 * @param promotion the type the moving pawn is promoted to
+	 * @return the packed move
+	 */
+	public static int encode(int from, int to, int flags, Type promotion){
+		return encode(from, to, flags) | (promotion.ordinal() << PROMOTION_SHIFT);
+	}
+	
+	/**
+	 * @param move a packed move
+	 * @return the square moved from
+	 */
+	public static int getFrom(int move){
+		return move & SQUARE_MASK;
+	}
+	
+	/**
+	 * @param move a packed move
+	 * @return the square moved to
+	 */
+	public static int getTo(int move){
+		return (move >>> TO_SHIFT) & SQUARE_MASK;
+	}
+	
+	/**
+	 * @param move a packed move
+	 * @return the flags of the move
+	 */
+	public static int getFlags(int move){
+		return (move >>> FLAG_SHIFT) & FLAG_MASK;
+	}
+	
+	/**
+	 * @param move a packed move
+	 * @return whether or not the move captures a piece
+	 */
+	public static boolean isCapture(int move){
+		return (getFlags(move) & FLAG_CAPTURE) != 0;
+	}
+	
+	/**
+	 * @param move a packed move
+	 * @return the type promoted to, null if the move is not a promotion
+	 */
+	public static Type getPromotion(int move){
+		int ordinal = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+		return (ordinal == 0) ? null : Type.values()[ordinal];
+	}
+	
+	/**
+	 * returns a string representation of a packed move in the same format as SimpleMove
+	 * @param move a packed move
+	 * @return the move as a string
+	 */
+	public static String toString(int move){
+		return BitBoard.location(getFrom(move)) + " " + BitBoard.location(getTo(move)) + (isCapture(move) ? "*" : "");
+	}
+}
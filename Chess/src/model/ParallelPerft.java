@@ -0,0 +1,192 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts leaf nodes like Perft, but splits the top of the tree across a ForkJoinPool. Every move within the first few plies becomes its own task working on its own copy of
+ * the position, so tasks never share mutable state; below that each task counts its subtree sequentially. Subtree counts are added up in move generation order, so the
+ * results are the same no matter how the work was scheduled.
+ * 
+ * Optionally, subtree counts can be shared between tasks through a cache keyed by position hash and remaining depth, so transpositions reached by different move orders are
+ * only counted once. The cache relies on the 64-bit Zobrist key alone; a collision between two different positions is possible but extremely unlikely.
+ * 
+ * Instances are safe to use from several threads at once.
+ */
+public final class ParallelPerft{
+	/**
+	 * the smallest remaining depth whose subtree counts are cached. Shallower subtrees are cheaper to count than to look up.
+	 */
+	private static final int MIN_CACHED_DEPTH = 3;
+	
+	private final ForkJoinPool pool;
+	private final int splitDepth;
+	private final boolean useCache;
+	
+	/**
+	 * Constructs a ParallelPerft that runs on the common pool, splits the first two plies and does not cache.
+	 */
+	public ParallelPerft(){
+		this(ForkJoinPool.commonPool(), 2, false);
+	}
+	
+	/**
+	 * @param pool the pool to run tasks on
+	 * @param splitDepth how many plies from the root are split into separate tasks. Must be at least 1.
+	 * @param useCache whether or not to share subtree counts between tasks through a hash-keyed cache
+	 */
+	public ParallelPerft(ForkJoinPool pool, int splitDepth, boolean useCache){
+		if(splitDepth < 1)throw new IllegalArgumentException("splitDepth must be at least 1. Recieved " + splitDepth);
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+		this.useCache = useCache;
+	}
+	
+	/**
+	 * counts the leaf nodes of the current position of a MoveHandler. The MoveHandler itself is not modified.
+	 * @param handler the MoveHandler whose current position is counted
+	 * @param depth the number of plies to search
+	 * @return the number of leaf nodes
+	 */
+	public long perft(MoveHandler handler, int depth){
+		if(depth <= 0)return 1;
+		return pool.invoke(new Task(handler.copyPosition(), depth, 0, getCache(depth)));
+	}
+	
+	/**
+	 * counts the leaf nodes below each legal move of the current position of a MoveHandler, with each root move counted in parallel.
+	 * @param handler the MoveHandler whose current position is counted
+	 * @param depth the number of plies to search, including the root move
+	 * @return a map from each root move, written as in the move files, to the number of leaf nodes below it. Iterates in move generation order.
+	 */
+	public LinkedHashMap<String, Long> divide(MoveHandler handler, int depth){
+		BitBoard position = handler.copyPosition();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(position, moves);
+		ConcurrentHashMap<Long, Long>[] cache = getCache(depth);
+		
+		Task[] tasks = new Task[count];
+		for(int i = 0; i < count; i++){
+			BitBoard child = position.copy();
+			child.make(moves[i]);
+			tasks[i] = new Task(child, depth - 1, 1, cache);
+		}
+		for(Task t : tasks){
+			pool.execute(t);
+		}
+		
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		for(int i = 0; i < count; i++){
+			result.put(PackedMove.toString(moves[i]), tasks[i].join());
+		}
+		return result;
+	}
+	
+	/**
+	 * gets the cache for a search, one map per remaining depth.
+	 * @param depth the depth of the search
+	 * @return the cache, null if caching is turned off
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private ConcurrentHashMap<Long, Long>[] getCache(int depth){
+		if(!useCache)return null;
+		ConcurrentHashMap<Long, Long>[] maps = new ConcurrentHashMap[depth + 1];
+		for(int i = MIN_CACHED_DEPTH; i <= depth; i++){
+			maps[i] = new ConcurrentHashMap<Long, Long>();
+		}
+		return maps;
+	}
+	
+	/**
+	 * counts one subtree. Splits into a task per move while within the split depth, otherwise counts sequentially.
+	 */
+	private class Task extends RecursiveTask<Long>{
+		private static final long serialVersionUID = 1L;
+		private final BitBoard position;
+		private final int depth;
+		private final int ply;
+		private final ConcurrentHashMap<Long, Long>[] cache;
+		
+		/**
+		 * @param position the position at the root of the subtree. Owned by this task.
+		 * @param depth the remaining depth
+		 * @param ply the distance from the root of the whole search
+		 * @param cache the shared subtree cache, null if caching is turned off
+		 */
+		Task(BitBoard position, int depth, int ply, ConcurrentHashMap<Long, Long>[] cache){
+			this.position = position;
+			this.depth = depth;
+			this.ply = ply;
+			this.cache = cache;
+		}
+		
+		@Override
+		protected Long compute(){
+			if(depth <= 0)return 1L;
+			if(ply >= splitDepth || depth <= 2){
+				return count(position, depth, new int[depth][MoveGenerator.MAX_MOVES]);
+			}
+			
+			Long cached = lookup(position, depth);
+			if(cached != null)return cached;
+			
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int count = MoveGenerator.generate(position, moves);
+			Task[] tasks = new Task[count];
+			for(int i = 0; i < count; i++){
+				BitBoard child = position.copy();
+				child.make(moves[i]);
+				tasks[i] = new Task(child, depth - 1, ply + 1, cache);
+			}
+			invokeAll(tasks);
+			
+			long nodes = 0;
+			for(Task t : tasks){
+				nodes += t.join();
+			}
+			store(position, depth, nodes);
+			return nodes;
+		}
+		
+		/**
+		 * counts a subtree sequentially, consulting the cache at every node deep enough to be worth it.
+		 * @param position the position at the root of the subtree
+		 * @param depth the remaining depth
+		 * @param buffers one move buffer per remaining ply
+		 * @return the number of leaf nodes
+		 */
+		private long count(BitBoard position, int depth, int[][] buffers){
+			if(depth < MIN_CACHED_DEPTH || cache == null)return Perft.perft(position, depth, buffers);
+			
+			Long cached = lookup(position, depth);
+			if(cached != null)return cached;
+			
+			int[] moves = buffers[depth - 1];
+			int count = MoveGenerator.generate(position, moves);
+			long nodes = 0;
+			for(int i = 0; i < count; i++){
+				position.make(moves[i]);
+				nodes += count(position, depth - 1, buffers);
+				position.unmake(moves[i]);
+			}
+			store(position, depth, nodes);
+			return nodes;
+		}
+		
+		/**
+		 * @return the cached count for a position and remaining depth, null if there isn't one
+		 */
+		private Long lookup(BitBoard position, int depth){
+			return (cache == null || cache[depth] == null) ? null : cache[depth].get(position.getKey());
+		}
+		
+		/**
+		 * caches the count for a position and remaining depth.
+		 */
+		private void store(BitBoard position, int depth, long nodes){
+			if(cache != null && cache[depth] != null)cache[depth].put(position.getKey(), nodes);
+		}
+	}
+}
@@ -22,15 +22,10 @@ public class PawnMove extends SimpleMove {
 	}
 	
 	/**
-	 * executes this movement. Do not invoke this directly. It should be left up to the MoveHandler
+	 * the skipped location can be captured en passant for one turn.
 	 */
 	@Override
-	public void execute() {
-		super.execute();
-	}
-
-	@Override
-	public void revert(){
-		super.revert();
+	protected Location getEnPassantSquare(){
+		return skipped;
 	}
 }
@@ -0,0 +1,104 @@
+package model;
+
+import io.ChessReader;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the move tree to a fixed depth (perft). Comparing these counts with known values is the standard way of checking a move generator, and timing
+ * them gives a nodes per second figure for it. The counts follow the rules implemented by MoveGenerator, which does not yet generate castling or promotion, so only
+ * positions in which neither is reachable within the depth can be compared with published numbers.
+ * 
+ * Can also be run directly: {@code Perft depth [file]} prints the divide output for the position set up by the file (or the starting position), followed by the total.
+ */
+public final class Perft{
+	private Perft(){}
+	
+	/**
+	 * counts the leaf nodes of the current position of a MoveHandler. The MoveHandler itself is not modified.
+	 * @param handler the MoveHandler whose current position is counted
+	 * @param depth the number of plies to search
+	 * @return the number of leaf nodes
+	 */
+	public static long perft(MoveHandler handler, int depth){
+		return perft(handler.copyPosition(), depth);
+	}
+	
+	/**
+	 * counts the leaf nodes of a position.
+	 * @param position the position to count from. It is modified while counting but is back in its original state when this method returns.
+	 * @param depth the number of plies to search
+	 * @return the number of leaf nodes
+	 */
+	public static long perft(BitBoard position, int depth){
+		if(depth <= 0)return 1;
+		return perft(position, depth, new int[depth][MoveGenerator.MAX_MOVES]);
+	}
+	
+	/**
+	 * counts the leaf nodes below each legal move of the current position of a MoveHandler (the "divide" output).
+	 * @param handler the MoveHandler whose current position is counted
+	 * @param depth the number of plies to search, including the root move
+	 * @return a map from each root move, written as in the move files, to the number of leaf nodes below it. Iterates in move generation order.
+	 */
+	public static LinkedHashMap<String, Long> divide(MoveHandler handler, int depth){
+		BitBoard position = handler.copyPosition();
+		LinkedHashMap<String, Long> result = new LinkedHashMap<String, Long>();
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generate(position, moves);
+		int[][] buffers = new int[Math.max(depth - 1, 0)][MoveGenerator.MAX_MOVES];
+		for(int i = 0; i < count; i++){
+			position.make(moves[i]);
+			result.put(PackedMove.toString(moves[i]), (depth <= 1) ? 1 : perft(position, depth - 1, buffers));
+			position.unmake(moves[i]);
+		}
+		return result;
+	}
+	
+	/**
+	 * the recursive part of perft. One buffer is used per remaining ply so that nothing is allocated while counting.
+	 */
+	static long perft(BitBoard position, int depth, int[][] buffers){
+		int[] moves = buffers[depth - 1];
+		int count = MoveGenerator.generate(position, moves);
+		if(depth == 1)return count;
+		
+		long nodes = 0;
+		for(int i = 0; i < count; i++){
+			position.make(moves[i]);
+			nodes += perft(position, depth - 1, buffers);
+			position.unmake(moves[i]);
+		}
+		return nodes;
+	}
+	
+	public static void main(String[] args){
+		if(args.length == 0)throw new IllegalArgumentException("Usage: Perft depth [file]");
+		int depth = Integer.parseInt(args[0]);
+		MoveHandler handler = null;
+		if(args.length > 1){
+			try(ChessReader reader = new ChessReader(new FileReader(args[1]))){
+				handler = reader.readGame();
+			}catch(IOException ex){
+				ex.printStackTrace();
+				return;
+			}
+		}else{
+			handler = new MoveHandler(new Board(true));
+		}
+		
+		long start = System.nanoTime();
+		long total = 0;
+		for(Map.Entry<String, Long> e : divide(handler, depth).entrySet()){
+			System.out.println(e.getKey() + ": " + e.getValue());
+			total += e.getValue();
+		}
+		long elapsed = System.nanoTime() - start;
+		System.out.println();
+		System.out.println("Nodes: " + total);
+		System.out.println("Time: " + (elapsed / 1000000) + " ms (" + (long)(total / (elapsed / 1e9)) + " nodes/s)");
+	}
+}
@@ -1,70 +1,70 @@
 package model;
 
+/**
+ * This class is immutable and instance controlled: there is exactly one Piece for each combination of Type and Player, retrieved through {@code valueOf()}, so pieces can be
+ * shared freely between boards and compared with ==.
+ * 
+ * A piece does not know whether it has moved; that belongs to the position and is kept in the BitBoard's unmoved set. Promotion does not change a piece either, the promoting
+ * move replaces the pawn with the piece promoted to.
+ */
 public final class Piece {
-	private Player player;
-	private Type type;
-	private boolean hasMoved;
+	private static final Piece[] pieces = new Piece[BitBoard.PIECES];
 	
-	/**
-	 * Constructor that takes a type and a player
-	 * @param type the type that this piece represents
-	 * @param player the player who owns this piece
-	 */
-	public Piece(Type type, Player player){
-		this(type, player, false);
+	static{
+		for(Player player : Player.values()){
+			for(Type type : Type.values()){
+				pieces[BitBoard.index(type, player)] = new Piece(type, player);
+			}
+		}
 	}
 	
+	private final Player player;
+	private final Type type;
+	
 	/**
-	 * Constructor that takes a type, player, and a boolean representing whether or not the piece has previously moved.
+	 * Private constructor. Pieces are instance controlled by the {@code valueOf()} methods.
 	 * @param type the type that this piece represents
 	 * @param player the player who owns this piece
-	 * @param hasMoved flag indicating whether or not this piece has already moved.
 	 */
-	public Piece(Type type, Player player, boolean hasMoved){
+	private Piece(Type type, Player player){
 		this.type = type;
 		this.player = player;
-		this.hasMoved = hasMoved;
-	}
-	
-	/**
-	 * @return this piece's player
-	 */
-	public Player getPlayer(){
-		return player;
 	}
 	
 	/**
-	 * @return this piece's type
+	 * gets the piece of the corresponding type and player.
+	 * @param type the type of the piece
+	 * @param player the player who owns the piece
+	 * @return the piece
+	 * @throws IllegalArgumentException if type or player is null
 	 */
-	public Type getType(){
-		return type;
+	public static Piece valueOf(Type type, Player player){
+		if(type == null)throw new IllegalArgumentException("type cannot be null");
+		if(player == null)throw new IllegalArgumentException("player cannot be null");
+		return pieces[BitBoard.index(type, player)];
 	}
 	
 	/**
-	 * promotes this piece into a higher level piece.
-	 * @param type the type that this piece will be promoted into
-	 * @throws IllegalArgumentException if type is a king
-	 * @throws IllegalStateException if the type of this piece is not currently Type.pawn
+	 * gets the piece with the corresponding bitboard index.
+	 * @param index the index of the piece, see {@code BitBoard.index()}
+	 * @return the piece, null if index is {@code BitBoard.NONE}
 	 */
-	public void promote(Type type){
-		if(type == Type.king)throw new IllegalArgumentException("Cannot promote to King");
-		if(this.type != Type.pawn)throw new IllegalStateException("Can only promote Pawns");
-		this.type = type;
+	static Piece valueOf(int index){
+		return (index == BitBoard.NONE) ? null : pieces[index];
 	}
 	
 	/**
-	 * @return whether or not this piece has already moved
+	 * @return this piece's player
 	 */
-	public boolean hasMoved(){
-		return hasMoved;
+	public Player getPlayer(){
+		return player;
 	}
 	
 	/**
-	 * sets whether or not this piece has previously moved.
-	 * @param b
+	 * @return this piece's type
 	 */
-	public void setMoved(boolean b){
-		hasMoved = b;
+	public Type getType(){
+		return type;
 	}
 	
 	/**
@@ -16,6 +16,13 @@ public enum Player {
 		return fileString;
 	}
 	
+	/**
+	 * @return the other player
+	 */
+	public Player getOpponent(){
+		return (this == white) ? black : white;
+	}
+	
 	public static Player getByFileString(String s){
 		Player p = (s.equals(white.fileString)) ? white : (s.equals(black.fileString)) ? black : null;
 		if(p == null)throw new IllegalFormatException("Does not match the regex: \"[ld]\"");
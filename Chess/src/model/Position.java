@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a game: the pieces, the player to move, the state of the game and the legal moves. A Position never changes after it is made, so any number of
+ * threads can read one at once without locking. GameActor publishes a new one after every change to its game.
+ * 
+ * Only what describes the position is kept: the piece boards, the player to move, the en passant square, the unmoved set and the key. The attack table and undo stacks of the
+ * BitBoard are left behind, so taking a snapshot after every move stays cheap; {@code copy()} rebuilds them for the rare reader that needs a BitBoard to play on.
+ */
+public final class Position implements BoardView{
+	private final long[] pieces = new long[BitBoard.PIECES];
+	private final long[] occupancy = new long[Player.values().length];
+	private final long occupied;
+	private final int enPassant;
+	private final long unmoved;
+	private final long key;
+	private final int[] moves;
+	private final Player turn;
+	private final GameState state;
+	private final int ply;
+	
+	/**
+	 * takes a snapshot of the current position of a MoveHandler.
+	 * @param model the MoveHandler. Must not be changed while the snapshot is taken.
+	 */
+	Position(MoveHandler model){
+		int[] buffer = new int[MoveGenerator.MAX_MOVES];
+		int count = model.getLegalMoves(buffer);
+		BitBoard bits = model.getBitBoard();
+		for(int i = 0; i < BitBoard.PIECES; i++){
+			pieces[i] = bits.getPieces(i);
+		}
+		for(Player player : Player.values()){
+			occupancy[player.ordinal()] = bits.getOccupancy(player);
+		}
+		this.occupied = bits.getOccupied();
+		this.enPassant = bits.getEnPassant();
+		this.unmoved = bits.getUnmoved();
+		this.key = bits.getKey();
+		this.moves = Arrays.copyOf(buffer, count);
+		this.turn = model.getTurn();
+		this.state = model.getState();
+		this.ply = model.getPly();
+	}
+	
+	@Override
+	public Piece getPiece(Location loc){
+		return getPiece(loc.getIndex());
+	}
+	
+	@Override
+	public Piece getPiece(int square){
+		long bit = 1L << square;
+		if((occupied & bit) == 0)return null;
+		for(int i = 0; i < BitBoard.PIECES; i++){
+			if((pieces[i] & bit) != 0)return Piece.valueOf(i);
+		}
+		return null;
+	}
+	
+	@Override
+	public boolean isOccupied(Location loc){
+		return (occupied & (1L << loc.getIndex())) != 0;
+	}
+	
+	@Override
+	public long getOccupied(){
+		return occupied;
+	}
+	
+	@Override
+	public long getOccupancy(Player player){
+		return occupancy[player.ordinal()];
+	}
+	
+	/**
+	 * @return the player whose turn it is
+	 */
+	public Player getTurn(){
+		return turn;
+	}
+	
+	/**
+	 * @return the state of the game, see {@code MoveHandler.getState()}
+	 */
+	public GameState getState(){
+		return state;
+	}
+	
+	/**
+	 * @return the number of plies played to reach this position, see {@code MoveHandler.getPly()}
+	 */
+	public int getPly(){
+		return ply;
+	}
+	
+	/**
+	 * @return the Zobrist hash key of this position
+	 */
+	public long getKey(){
+		return key;
+	}
+	
+	/**
+	 * @return the number of legal moves in this position
+	 */
+	public int getMoveCount(){
+		return moves.length;
+	}
+	
+	/**
+	 * @param i a number between 0 and {@code getMoveCount() - 1}
+	 * @return the i'th legal move, packed. See PackedMove.
+	 */
+	public int getMove(int i){
+		return moves[i];
+	}
+	
+	/**
+	 * looks for a legal move between two squares.
+	 * @param from the square moved from
+	 * @param to the square moved to
+	 * @return the packed move, {@code PackedMove.NONE} if there is no such legal move
+	 */
+	public int findMove(int from, int to){
+		for(int move : moves){
+			if(PackedMove.getFrom(move) == from && PackedMove.getTo(move) == to)return move;
+		}
+		return PackedMove.NONE;
+	}
+	
+	/**
+	 * builds a BitBoard holding this position. Its undo stacks are empty, so moves made on it can be unmade, but not moves that led to it.
+	 * @return an independent, changeable copy of this position
+	 */
+	public BitBoard copy(){
+		BitBoard bits = new BitBoard();
+		for(int i = 0; i < BitBoard.PIECES; i++){
+			for(long set = pieces[i]; set != 0; set &= set - 1){
+				bits.put(Long.numberOfTrailingZeros(set), BitBoard.typeOf(i), BitBoard.playerOf(i));
+			}
+		}
+		for(long set = unmoved; set != 0; set &= set - 1){
+			bits.setMoved(Long.numberOfTrailingZeros(set), false);
+		}
+		bits.setTurn(turn);
+		bits.setEnPassant(enPassant);
+		return bits;
+	}
+}
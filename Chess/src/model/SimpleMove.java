@@ -9,29 +9,60 @@ public class SimpleMove extends Move {
 	private Location from, to;
 	private boolean capture;
 	private Piece captured;
+	private Piece promotion;
 	private boolean previouslyMoved;
+	private boolean capturedMoved;
 	
 	public SimpleMove(MoveHandler handler, Piece p, Location from, Location to){
+		this(handler, p, from, to, null);
+	}
+	
+	/**
+	 * constructs a move that may promote the moving piece.
+	 * @param promotion the piece that replaces the moving piece on arrival, null if the move is not a promotion
+	 */
+	public SimpleMove(MoveHandler handler, Piece p, Location from, Location to, Piece promotion){
 		super(handler, p);
 		this.from = from;
 		this.to = to;
+		this.promotion = promotion;
 		capture = (captured = handler.getTile(to).getPiece()) != null;
-		previouslyMoved = p.hasMoved();
+		previouslyMoved = handler.hasMoved(from);
+		capturedMoved = handler.hasMoved(to);
 	}
 	
 	@Override
 	public void execute() {
 		handler.movePiece(from, to);
-		piece.setMoved(true);
+		handler.setMoved(to, true);
+		if(promotion != null)handler.swapPiece(to, promotion);
+		setEnPassant(getEnPassantSquare());
+	}
+	
+	/**
+	 * @return the square that can be captured en passant after this move, null if there isn't one
+	 */
+	protected Location getEnPassantSquare(){
+		return null;
 	}
 	
 	@Override
 	public void revert(){
+		if(promotion != null)handler.swapPiece(to, piece);
 		handler.movePiece(to, from);
-		piece.setMoved(previouslyMoved);
+		handler.setMoved(from, previouslyMoved);
 		if(captured != null){
 			handler.addPiece(to, captured);
+			handler.setMoved(to, capturedMoved);
 		}
+		restoreEnPassant();
+	}
+	
+	/**
+	 * @return the piece the moving piece is promoted to, null if this move is not a promotion
+	 */
+	public Piece getPromotion(){
+		return promotion;
 	}
 	
 	public Location getFrom(){
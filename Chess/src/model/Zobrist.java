@@ -0,0 +1,43 @@
+package model;
+
+/**
+ * The random keys used to hash positions. A position's key is the exclusive or of the key of every piece on its square, the key of the castling rights still available, the
+ * key of the en passant file if there is one, and the side key if black is to move. Because each part is combined with exclusive or, a key can be updated as pieces move
+ * rather than being recalculated. The keys come from a fixed seed so that the same position always hashes to the same value.
+ */
+final class Zobrist{
+	static final long[][] PIECES = new long[BitBoard.PIECES][BitBoard.SQUARES];
+	static final long[] CASTLING = new long[16];
+	static final long[] EN_PASSANT = new long[Location.SIZE];
+	static final long BLACK_TO_MOVE;
+	
+	private static long seed = 0x9E3779B97F4A7C15L;
+	
+	static{
+		for(long[] keys : PIECES){
+			for(int square = 0; square < keys.length; square++){
+				keys[square] = next();
+			}
+		}
+		//no rights at all hashes to nothing so that an empty board has a key of 0
+		for(int rights = 1; rights < CASTLING.length; rights++){
+			CASTLING[rights] = next();
+		}
+		for(int file = 0; file < EN_PASSANT.length; file++){
+			EN_PASSANT[file] = next();
+		}
+		BLACK_TO_MOVE = next();
+	}
+	
+	private Zobrist(){}
+	
+	/**
+	 * @return the next number from a splitmix64 generator
+	 */
+	private static long next(){
+		long z = (seed += 0x9E3779B97F4A7C15L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,6 +1,7 @@
 package view;
 
 import io.Communicator;
+import io.Protocol;
 
 import java.awt.Color;
 import java.awt.Graphics;
@@ -21,13 +22,13 @@ import javax.imageio.ImageIO;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
-import model.Board;
-import model.CastleMove;
+import model.GameActor;
 import model.Location;
-import model.Move;
 import model.MoveHandler;
+import model.PackedMove;
 import model.Piece;
 import model.Player;
+import model.Position;
 import model.Type;
 
 /**
@@ -68,17 +69,24 @@ public class GamePanel extends JPanel{
 		}
 	}
 	
-	private MoveHandler model;
+	private GameActor game;
+	private Communicator com;
 	private Color[] boardColors = {Color.lightGray, Color.white};
 	private LinkedHashMap<Location, Overlay> overlays = new LinkedHashMap<Location, Overlay>();
 	
 	/**
-	 * Only constructor. Takes a MoveHandler and displays the contents.
+	 * Only constructor. Takes a MoveHandler and displays the contents. The MoveHandler is handed to a GameActor, which makes every change to it from then on; the panel
+	 * paints the positions the actor publishes.
 	 * @param model the model to be displayed
 	 */
 	public GamePanel(MoveHandler model){
-		this.model = model;
 		model.forceUpdate();
+		game = new GameActor(model);
+		game.addListener(new GameActor.Listener(){
+			public void positionChanged(Position position){
+				repaint();
+			}
+		});
 		gamePlay();
 		MouseAdapter listener = new SelectListener();
 		addMouseListener(listener);
@@ -100,7 +108,14 @@ public class GamePanel extends JPanel{
 				Socket connection = connect(connectionType);
 				if(connection != null){
 					success = true;
-					model.setComHandler(new Communicator(connection, Player.values()[Player.values().length - 1 - connectionType], model, this));
+					//the host plays white against another client; a GameServer picks the sides itself and the Communicator takes them from its START
+					com = new Communicator(connection, Player.values()[Player.values().length - 1 - connectionType], game);
+					final Communicator handler = com;
+					game.submit(new GameActor.Command(){
+						public void execute(MoveHandler model){
+							model.setComHandler(handler);
+						}
+					});
 				}
 			}
 		}
@@ -155,7 +170,7 @@ public class GamePanel extends JPanel{
 		Socket connection = null;
 		//if connectionType is host
 		if(connectionType == CONNECTION_TYPE_HOST){
-			try(ServerSocket server = new ServerSocket(1234)){
+			try(ServerSocket server = new ServerSocket(Protocol.PORT)){
 				server.setSoTimeout(300000);
 				connection = server.accept();
 			}catch(IOException ex){
@@ -166,7 +181,7 @@ public class GamePanel extends JPanel{
 		if(connectionType == CONNECTION_TYPE_CONNECT){
 			String ipAddress = JOptionPane.showInputDialog("What Address do you want to connect to.");
 			try{
-				connection = new Socket(ipAddress, 1234);
+				connection = new Socket(ipAddress, Protocol.PORT);
 			}catch(IOException ex){
 				ex.printStackTrace();
 			}
@@ -178,14 +193,15 @@ public class GamePanel extends JPanel{
 	 * Paints the board, pieces, and overlays in that order.
 	 */
 	public void paintComponent(Graphics g){
-		paintBackground(g);
+		Position position = game.getPosition();
+		paintBackground(g, position);
 		paintBoard(g);
-		paintPieces(g);
+		paintPieces(g, position);
 		paintOverlays(g);
 	}
 	
-	private void paintBackground(Graphics g){
-		g.setColor((model.getTurn() == Player.white) ? Color.white : Color.black);
+	private void paintBackground(Graphics g, Position position){
+		g.setColor((position.getTurn() == Player.white) ? Color.white : Color.black);
 		g.fillRect(0, 0, getWidth(), getHeight());
 	}
 	
@@ -234,19 +250,17 @@ public class GamePanel extends JPanel{
 	/**
 	 * paints all of the pieces on the board
 	 * @param g the graphics object to which to paint the pieces.
+	 * @param view the position to paint
 	 */
-	private void paintPieces(Graphics g){
-		LinkedHashMap<Location, Board.Tile> map = model.getTiles();
+	private void paintPieces(Graphics g, Position view){
 
 		int cellSize = Math.min(getWidth(), getHeight())/DIVISOR;
 		
-		for(Map.Entry<Location, Board.Tile> e : map.entrySet()){
-			if(e.getValue().isOccupied()){
-				Piece p = e.getValue().getPiece();
-				Location loc = e.getKey();
-				Image image = pieceImages.get(p.getPlayer()).get(p.getType()).getScaledInstance(cellSize - (2*PADDING), cellSize - (2*PADDING), BufferedImage.SCALE_DEFAULT);
-				g.drawImage(image, loc.getX()*cellSize + PADDING, ((DIVISOR-1-loc.getY())*cellSize) + PADDING, null);
-			}
+		for(long occupied = view.getOccupied(); occupied != 0; occupied &= occupied - 1){
+			Location loc = Location.valueOf(Long.numberOfTrailingZeros(occupied));
+			Piece p = view.getPiece(loc);
+			Image image = pieceImages.get(p.getPlayer()).get(p.getType()).getScaledInstance(cellSize - (2*PADDING), cellSize - (2*PADDING), BufferedImage.SCALE_DEFAULT);
+			g.drawImage(image, loc.getX()*cellSize + PADDING, ((DIVISOR-1-loc.getY())*cellSize) + PADDING, null);
 		}
 	}
 
@@ -259,7 +273,7 @@ public class GamePanel extends JPanel{
 	private class SelectListener extends MouseAdapter{
 		private Location mouseOver = null;
 		private Location selected = null;
-		private LinkedHashMap<Location, Move> moves = null;
+		private LinkedHashMap<Location, Integer> moves = null;
 		
 		/**
 		 * displays all legal moves the piece can make. This gets locked when a piece is selected and unlocked when deselected.
@@ -269,37 +283,55 @@ public class GamePanel extends JPanel{
 			if(selected != null)return;
 			clearOverlays();
 			mouseOver = loc;
-			moves = model.getLegalMoves(loc);
+			Position position = game.getPosition();
+			moves = getLegalMoves(position, loc);
 			if(moves == null){
 				repaint();
 				return;
 			}
-			for(Map.Entry<Location, Move> e : moves.entrySet()){
+			for(Location to : moves.keySet()){
 				Overlay o = Overlay.move;
-				if(e.getValue() instanceof CastleMove){
-					o = Overlay.castle;
-				}
-				if(model.getTile(e.getKey()).isOccupied()){
+				if(position.isOccupied(to)){
 					o = Overlay.attack;
 				}
-				addOverlay(e.getKey(), o);
+				addOverlay(to, o);
 			}
 			repaint();
 		}
 		
+		/**
+		 * gets the legal moves of the piece at a location, unless it is the turn of the player on the other end of the network.
+		 * @param position the position to look in
+		 * @param loc the location of the piece
+		 * @return the packed moves by the location moved to, null if there are none
+		 */
+		private LinkedHashMap<Location, Integer> getLegalMoves(Position position, Location loc){
+			if(com != null && position.getTurn() == com.getPlayer())return null;
+			LinkedHashMap<Location, Integer> found = null;
+			for(int i = 0; i < position.getMoveCount(); i++){
+				int move = position.getMove(i);
+				if(PackedMove.getFrom(move) != loc.getIndex())continue;
+				if(found == null)found = new LinkedHashMap<Location, Integer>();
+				found.put(Location.valueOf(PackedMove.getTo(move)), move);
+			}
+			return found;
+		}
+		
 		/**
 		 * invoked when a tile is clicked on. It will either select the piece currently there, deselect the currently selected piece, or make the piece take a legal move.
 		 * @param loc the location that was clicked.
 		 */
 		private void select(Location loc){
-			if(selected == null && model.getTile(loc).isOccupied() && model.getTile(loc).getPiece().getPlayer() == model.getTurn()){
+			Position position = game.getPosition();
+			Piece piece = position.getPiece(loc);
+			if(selected == null && piece != null && piece.getPlayer() == position.getTurn()){
 				selected = loc;
 				addOverlay(loc, Overlay.select);
 			}else if(selected == loc){
 				selected = null;
 				overlays.remove(loc);
 			}else if(moves != null && moves.containsKey(loc)){
-				model.makeMove(moves.get(loc), selected, loc);
+				game.makeMove(moves.get(loc));
 				selected = null;
 				moves = null;
 			}